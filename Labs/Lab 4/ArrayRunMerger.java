@@ -0,0 +1,352 @@
+// Natural merge sort for int[] ranges, using the merge policy and galloping that Tim Peters
+// describes for Python's list sort (listsort.txt). The input is cut into the runs that are
+// already there (strictly descending runs are reversed in place), runs shorter than a
+// minimum length are extended with binary insertion sort, and the runs wait on a stack until
+// its lengths satisfy, from the top down,
+//     each run is longer than the one above it, and longer than the two above it together,
+// so merges stay balanced and the stack stays logarithmic. The second rule is checked for the
+// top four runs, not three, which is what keeps it true for the whole stack.
+//
+// A merge first trims the elements that are already in place, then compares one element at a
+// time until one side wins minGallop times in a row. From there it gallops: an exponential
+// search finds how far the winning side keeps winning and that stretch is copied as a block.
+// minGallop drops while galloping pays off and rises when it stops paying, so random data
+// merges element by element and data with long ordered stretches moves in blocks. Sorted or
+// nearly sorted input sorts in close to O(n).
+class ArrayRunMerger {
+    // Ranges shorter than this are sorted with binary insertion sort alone.
+    private static final int MIN_MERGE = 32;
+    // A galloping step has to move at least this many elements to keep galloping.
+    private static final int MIN_GALLOP = 7;
+    // Under the stack rules run lengths grow at least as fast as Fibonacci numbers from the
+    // top down, so this many runs cover any int-sized range.
+    private static final int MAX_RUNS = 49;
+
+    private final int[] data;
+    private int[] tmp = new int[0];
+    private int minGallop = MIN_GALLOP;
+    // Run i of the stack is data[bounds[i]..bounds[i + 1]); the runs are contiguous.
+    private final int[] bounds = new int[MAX_RUNS + 1];
+    private int stackSize = 0;
+    // The deepest the run stack got; reported as the recursion depth.
+    private int maxStackSize = 1;
+    private long comparisons = 0;
+    // Element moves, reported as exchanges.
+    private long moves = 0;
+
+    private ArrayRunMerger(int[] data) {
+        this.data = data;
+    }
+
+    static void sort(int[] data, int low, int high, SortMetrics metrics) {
+        int n = high - low + 1;
+        if (n < 2) {
+            return;
+        }
+        ArrayRunMerger merger = new ArrayRunMerger(data);
+        int end = high + 1;
+        // A short range becomes a single run sorted by insertion.
+        int minRun = n < MIN_MERGE ? n : minRunLength(n);
+        int lo = low;
+        while (lo < end) {
+            int runEnd = merger.findRun(lo, end);
+            int forcedEnd = Math.min(end, lo + minRun);
+            if (runEnd < forcedEnd) {
+                merger.binaryInsertionSort(lo, forcedEnd, runEnd);
+                runEnd = forcedEnd;
+            }
+            merger.pushRun(lo, runEnd);
+            merger.collapse(false);
+            lo = runEnd;
+        }
+        merger.collapse(true);
+        metrics.recordDepth(merger.maxStackSize);
+        metrics.addComparisons(merger.comparisons);
+        metrics.addExchanges(merger.moves);
+    }
+
+    // A run length between MIN_MERGE / 2 and MIN_MERGE: the top five bits of n, plus one if any
+    // lower bit is set. n / minRun is then a power of two or just under one, so the final
+    // merges are between runs of about equal length.
+    private static int minRunLength(int n) {
+        int shift = Math.max(0, 32 - Integer.numberOfLeadingZeros(n) - 5);
+        int dropped = n & ((1 << shift) - 1);
+        return (n >>> shift) + (dropped != 0 ? 1 : 0);
+    }
+
+    // Returns the end of the run that starts at lo, after reversing it if it is strictly
+    // descending. Only strict descents are reversed, so equal keys keep their order.
+    private int findRun(int lo, int hi) {
+        int end = lo + 1;
+        if (end == hi) {
+            return end;
+        }
+        comparisons++;
+        boolean descending = data[end] < data[lo];
+        end++;
+        while (end < hi) {
+            comparisons++;
+            boolean continues = descending ? data[end] < data[end - 1] : data[end] >= data[end - 1];
+            if (!continues) {
+                break;
+            }
+            end++;
+        }
+        if (descending) {
+            reverseRange(lo, end);
+        }
+        return end;
+    }
+
+    private void reverseRange(int lo, int hi) {
+        for (int i = lo, j = hi - 1; i < j; i++, j--) {
+            int t = data[i];
+            data[i] = data[j];
+            data[j] = t;
+            moves += 2;
+        }
+    }
+
+    // Sorts data[lo..hi) given that data[lo..sorted) is already sorted.
+    private void binaryInsertionSort(int lo, int hi, int sorted) {
+        for (int k = Math.max(sorted, lo + 1); k < hi; k++) {
+            int value = data[k];
+            // Insert after any equal keys, which keeps the sort stable.
+            int left = lo;
+            int right = k;
+            while (left < right) {
+                int mid = (left + right) >>> 1;
+                comparisons++;
+                if (value < data[mid]) {
+                    right = mid;
+                } else {
+                    left = mid + 1;
+                }
+            }
+            System.arraycopy(data, left, data, left + 1, k - left);
+            data[left] = value;
+            moves += k - left + 1;
+        }
+    }
+
+    private void pushRun(int start, int end) {
+        bounds[stackSize] = start;
+        bounds[stackSize + 1] = end;
+        stackSize++;
+        maxStackSize = Math.max(maxStackSize, stackSize);
+    }
+
+    private long runLength(int i) {
+        return bounds[i + 1] - bounds[i];
+    }
+
+    // Merges runs until the stack rules hold again, or until one run is left when force is set.
+    // Calling the top three runs X, Y and Z (Z on top) and the one below them W, the rules are
+    // y > z, x > y + z and w > x + y. Whatever fails, Y is merged with the shorter of its
+    // neighbours.
+    private void collapse(boolean force) {
+        while (stackSize > 1) {
+            long z = runLength(stackSize - 1);
+            long y = runLength(stackSize - 2);
+            long x = stackSize > 2 ? runLength(stackSize - 3) : Long.MAX_VALUE;
+            long w = stackSize > 3 ? runLength(stackSize - 4) : Long.MAX_VALUE;
+            if (!force && y > z && (stackSize < 3 || x > y + z) && (stackSize < 4 || w > x + y)) {
+                return;
+            }
+            mergeRuns(x < z ? stackSize - 3 : stackSize - 2);
+        }
+    }
+
+    // Merges stack runs i and i + 1 into one.
+    private void mergeRuns(int i) {
+        int lo = bounds[i];
+        int mid = bounds[i + 1];
+        int hi = bounds[i + 2];
+        System.arraycopy(bounds, i + 2, bounds, i + 1, stackSize - i - 1);
+        stackSize--;
+
+        // The start of the first run that is not greater than the second run's first element
+        // is already in place, and so is the end of the second run that is not less than the
+        // first run's last element.
+        lo += gallopFromLeft(data, lo, mid, data[mid], true);
+        if (lo == mid) {
+            return;
+        }
+        hi -= gallopFromRight(data, mid, hi, data[mid - 1], true);
+        moves += hi - lo;
+        if (mid - lo <= hi - mid) {
+            mergeLow(lo, mid, hi);
+        } else {
+            mergeHigh(lo, mid, hi);
+        }
+    }
+
+    // Counts the leading elements of the sorted range a[from..to) that are less than key (or
+    // not greater than key when inclusive). Probes at offsets 0, 2, 6, 14, ... bracket the
+    // answer, and a binary search inside the bracket finds it, so a count of k costs
+    // O(log k) comparisons however long the range is.
+    private int gallopFromLeft(int[] a, int from, int to, int key, boolean inclusive) {
+        int n = to - from;
+        int known = 0;
+        int probe = 1;
+        while (probe <= n) {
+            comparisons++;
+            int value = a[from + probe - 1];
+            if (inclusive ? value > key : value >= key) {
+                break;
+            }
+            known = probe;
+            probe = probe > (n - 1) / 2 ? n + 1 : 2 * probe + 1;
+        }
+        // The count is in [known, limit]: the probe failed at offset probe - 1, or ran off the end.
+        int limit = Math.min(probe - 1, n);
+        while (known < limit) {
+            int mid = (known + limit) >>> 1;
+            comparisons++;
+            int value = a[from + mid];
+            if (inclusive ? value > key : value >= key) {
+                limit = mid;
+            } else {
+                known = mid + 1;
+            }
+        }
+        return known;
+    }
+
+    // Counts the trailing elements of the sorted range a[from..to) that are greater than key
+    // (or not less than key when inclusive), searching from the right end the same way.
+    private int gallopFromRight(int[] a, int from, int to, int key, boolean inclusive) {
+        int n = to - from;
+        int known = 0;
+        int probe = 1;
+        while (probe <= n) {
+            comparisons++;
+            int value = a[to - probe];
+            if (inclusive ? value < key : value <= key) {
+                break;
+            }
+            known = probe;
+            probe = probe > (n - 1) / 2 ? n + 1 : 2 * probe + 1;
+        }
+        int limit = Math.min(probe - 1, n);
+        while (known < limit) {
+            int mid = (known + limit) >>> 1;
+            comparisons++;
+            int value = a[to - 1 - mid];
+            if (inclusive ? value < key : value <= key) {
+                limit = mid;
+            } else {
+                known = mid + 1;
+            }
+        }
+        return known;
+    }
+
+    // Merges data[lo..mid) and data[mid..hi) front to back, with the first (shorter) run
+    // copied to tmp. The output never overtakes the unread part of the second run.
+    private void mergeLow(int lo, int mid, int hi) {
+        int length1 = mid - lo;
+        int[] t = scratch(length1);
+        System.arraycopy(data, lo, t, 0, length1);
+        int i = 0;
+        int j = mid;
+        int out = lo;
+        while (i < length1 && j < hi) {
+            // One element at a time until a side wins minGallop times in a row; ties go to
+            // the first run.
+            int wins1 = 0;
+            int wins2 = 0;
+            while (i < length1 && j < hi && wins1 < minGallop && wins2 < minGallop) {
+                comparisons++;
+                if (data[j] < t[i]) {
+                    data[out++] = data[j++];
+                    wins2++;
+                    wins1 = 0;
+                } else {
+                    data[out++] = t[i++];
+                    wins1++;
+                    wins2 = 0;
+                }
+            }
+            // Gallop while the stretches stay long.
+            while (i < length1 && j < hi) {
+                int taken1 = gallopFromLeft(t, i, length1, data[j], true);
+                System.arraycopy(t, i, data, out, taken1);
+                i += taken1;
+                out += taken1;
+                if (i == length1) {
+                    break;
+                }
+                int taken2 = gallopFromLeft(data, j, hi, t[i], false);
+                System.arraycopy(data, j, data, out, taken2);
+                j += taken2;
+                out += taken2;
+                if (taken1 < MIN_GALLOP && taken2 < MIN_GALLOP) {
+                    minGallop++;
+                    break;
+                }
+                minGallop = Math.max(1, minGallop - 1);
+            }
+        }
+        // What is left of the second run is already in place.
+        System.arraycopy(t, i, data, out, length1 - i);
+    }
+
+    // Merges data[lo..mid) and data[mid..hi) back to front, with the second (shorter) run
+    // copied to tmp. The output never overtakes the unread part of the first run.
+    private void mergeHigh(int lo, int mid, int hi) {
+        int length2 = hi - mid;
+        int[] t = scratch(length2);
+        System.arraycopy(data, mid, t, 0, length2);
+        int i = mid - 1;
+        int j = length2 - 1;
+        int out = hi - 1;
+        while (i >= lo && j >= 0) {
+            // Ties go to the second run, which fills the output from the back.
+            int wins1 = 0;
+            int wins2 = 0;
+            while (i >= lo && j >= 0 && wins1 < minGallop && wins2 < minGallop) {
+                comparisons++;
+                if (t[j] < data[i]) {
+                    data[out--] = data[i--];
+                    wins1++;
+                    wins2 = 0;
+                } else {
+                    data[out--] = t[j--];
+                    wins2++;
+                    wins1 = 0;
+                }
+            }
+            while (i >= lo && j >= 0) {
+                int taken1 = gallopFromRight(data, lo, i + 1, t[j], false);
+                System.arraycopy(data, i - taken1 + 1, data, out - taken1 + 1, taken1);
+                i -= taken1;
+                out -= taken1;
+                if (i < lo) {
+                    break;
+                }
+                int taken2 = gallopFromRight(t, 0, j + 1, data[i], true);
+                System.arraycopy(t, j - taken2 + 1, data, out - taken2 + 1, taken2);
+                j -= taken2;
+                out -= taken2;
+                if (taken1 < MIN_GALLOP && taken2 < MIN_GALLOP) {
+                    minGallop++;
+                    break;
+                }
+                minGallop = Math.max(1, minGallop - 1);
+            }
+        }
+        // What is left of the first run is already in place.
+        System.arraycopy(t, 0, data, lo, j + 1);
+    }
+
+    // The scratch buffer grows by doubling but never past half the array, since a merge only
+    // copies its shorter run.
+    private int[] scratch(int minCapacity) {
+        if (tmp.length < minCapacity) {
+            int doubled = tmp.length > (Integer.MAX_VALUE >> 1) ? Integer.MAX_VALUE : 2 * tmp.length;
+            tmp = new int[Math.max(minCapacity, Math.min(doubled, data.length >>> 1))];
+        }
+        return tmp;
+    }
+}
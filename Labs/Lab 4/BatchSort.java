@@ -0,0 +1,289 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Sorts many files in one JVM, so JVM startup and JIT warm-up are paid once instead of once
+// per file as with run_quicksort.bat. Each file goes through a load -> sort -> save pipeline:
+// loading and saving run on an I/O executor (virtual threads when the JVM has them, otherwise
+// a cached thread pool) and sorting runs on a fixed pool with one thread per core. A
+// semaphore limits how many files are in the pipeline at once, which bounds memory use.
+// At the end a summary line is printed for every file.
+//
+// Usage: java BatchSort <directory|glob> [--output-dir dir] [--prefix sorted_] [--variant name]
+//            [--threads n] [--max-in-flight n]
+//   directory        sorts every .dat file in it
+//   glob             e.g. "data/ran*.dat"; the pattern applies to file names in one directory
+//   --output-dir     where sorted files go (default: next to the input)
+//   --prefix         prepended to the input name, whose extension becomes .txt (default: sorted_)
+//   --variant        first, median, introsort, threeway, dualpivot, block, radix or auto
+//                    (default: first, the same sort as Quicksort)
+//   --threads        sorting threads (default: number of cores)
+//   --max-in-flight  files loaded but not yet saved (default: twice the sorting threads)
+public class BatchSort {
+    // The sorting threads recurse as deep as the sorts need; first pivot on sorted input
+    // goes one level per element.
+    private static final long SORT_THREAD_STACK_SIZE = 64L * 1024 * 1024;
+
+    // What happened to one file.
+    static class FileStats {
+        final String name;
+        int size;
+        long loadNanos;
+        long sortNanos;
+        long saveNanos;
+        final CountingSortMetrics metrics = new CountingSortMetrics();
+        Throwable error;
+
+        FileStats(String name) {
+            this.name = name;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: java BatchSort <directory|glob> [--output-dir dir] [--prefix sorted_]"
+                    + " [--variant name] [--threads n] [--max-in-flight n]");
+            return;
+        }
+        String outputDir = null;
+        String prefix = "sorted_";
+        String variant = "first";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxInFlight = 0;
+        for (int i = 1; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--output-dir":
+                    outputDir = value;
+                    break;
+                case "--prefix":
+                    prefix = value;
+                    break;
+                case "--variant":
+                    variant = value;
+                    break;
+                case "--threads":
+                    threads = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--max-in-flight":
+                    maxInFlight = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+        if (maxInFlight <= 0) {
+            maxInFlight = 2 * threads;
+        }
+        sortInt(new int[0], variant, SortMetrics.NONE);  // rejects unknown variants up front
+
+        List<File> inputs = findInputs(args[0]);
+        if (inputs.isEmpty()) {
+            System.out.println("No input files match " + args[0]);
+            return;
+        }
+        long start = System.nanoTime();
+        List<FileStats> results = sortAll(inputs, outputDir, prefix, variant, threads, maxInFlight);
+        long wallNanos = System.nanoTime() - start;
+        printSummary(results, wallNanos);
+    }
+
+    // A directory gives its .dat files; anything else is a glob on the file name part.
+    static List<File> findInputs(String spec) {
+        File directory = new File(spec);
+        String pattern = "*.dat";
+        if (!directory.isDirectory()) {
+            Path path = Paths.get(spec);
+            directory = path.getParent() == null ? new File(".") : path.getParent().toFile();
+            pattern = path.getFileName().toString();
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        File[] files = directory.listFiles(file -> file.isFile() && matcher.matches(Paths.get(file.getName())));
+        List<File> inputs = new ArrayList<>();
+        if (files != null) {
+            Arrays.sort(files);
+            inputs.addAll(Arrays.asList(files));
+        }
+        return inputs;
+    }
+
+    // Runs every file through the pipeline and returns their stats in input order.
+    static List<FileStats> sortAll(List<File> inputs, String outputDir, String prefix, String variant,
+                                   int threads, int maxInFlight) {
+        ExecutorService io = newIoExecutor();
+        ExecutorService cpu = Executors.newFixedThreadPool(threads, sortThreadFactory());
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        List<FileStats> results = new ArrayList<>();
+        List<CompletableFuture<Void>> pipelines = new ArrayList<>();
+        try {
+            for (File input : inputs) {
+                FileStats stats = new FileStats(input.getName());
+                results.add(stats);
+                String output = outputFile(input, outputDir, prefix);
+                inFlight.acquireUninterruptibly();
+                CompletableFuture<Void> pipeline = CompletableFuture
+                        .supplyAsync(() -> load(input.getPath(), stats), io)
+                        .thenApplyAsync(data -> sort(data, variant, stats), cpu)
+                        .thenAcceptAsync(data -> save(output, data, stats), io)
+                        .handle((ignored, error) -> {
+                            if (error != null) {
+                                stats.error = error.getCause() != null ? error.getCause() : error;
+                            }
+                            inFlight.release();
+                            return null;
+                        });
+                pipelines.add(pipeline);
+            }
+            CompletableFuture.allOf(pipelines.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            cpu.shutdown();
+            io.shutdown();
+            try {
+                cpu.awaitTermination(1, TimeUnit.MINUTES);
+                io.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return results;
+    }
+
+    private static int[] load(String fileName, FileStats stats) {
+        long start = System.nanoTime();
+        try {
+            int[] data = IntFileReader.readAll(fileName);
+            stats.size = data.length;
+            return data;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            stats.loadNanos = System.nanoTime() - start;
+            stats.metrics.addPhaseTime(SortMetrics.Phase.LOAD, stats.loadNanos);
+        }
+    }
+
+    private static int[] sort(int[] data, String variant, FileStats stats) {
+        long start = System.nanoTime();
+        sortInt(data, variant, stats.metrics);
+        stats.sortNanos = System.nanoTime() - start;
+        stats.metrics.addPhaseTime(SortMetrics.Phase.SORT, stats.sortNanos);
+        return data;
+    }
+
+    private static void save(String fileName, int[] data, FileStats stats) {
+        long start = System.nanoTime();
+        try {
+            IntFileWriter.writeAll(fileName, data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            stats.saveNanos = System.nanoTime() - start;
+            stats.metrics.addPhaseTime(SortMetrics.Phase.SAVE, stats.saveNanos);
+        }
+    }
+
+    static void sortInt(int[] data, String variant, SortMetrics metrics) {
+        int high = data.length - 1;
+        switch (variant) {
+            case "first":
+                Quicksort.quicksortFirstPivot(data, 0, high, metrics);
+                break;
+            case "median":
+                QuicksortAdvanced.quicksortMedianPivot(data, 0, high, metrics);
+                break;
+            case "introsort":
+                QuicksortAdvanced.introsort(data, 0, high, metrics);
+                break;
+            case "threeway":
+                QuicksortAdvanced.quicksort(data, 0, high, PartitionStrategy.THREE_WAY, metrics);
+                break;
+            case "dualpivot":
+                QuicksortAdvanced.quicksort(data, 0, high, PartitionStrategy.DUAL_PIVOT, metrics);
+                break;
+            case "block":
+                QuicksortAdvanced.quicksort(data, 0, high, PartitionStrategy.BLOCK, metrics);
+                break;
+            case "radix":
+                RadixSort.lsdRadixSort(data, 0, high, metrics);
+                break;
+            case "auto":
+                QuicksortAdvanced.autoSort(data, 0, high, metrics);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown variant: " + variant);
+        }
+    }
+
+    private static String outputFile(File input, String outputDir, String prefix) {
+        String name = input.getName();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        File directory = outputDir != null ? new File(outputDir) : input.getAbsoluteFile().getParentFile();
+        return new File(directory, prefix + base + ".txt").getPath();
+    }
+
+    // Virtual threads exist from Java 21; they are looked up by reflection so this class still
+    // compiles and runs on Java 11, where a cached pool of daemon threads is used instead.
+    private static ExecutorService newIoExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "batch-io");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static ThreadFactory sortThreadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(null, runnable, "batch-sort-" + count.incrementAndGet(), SORT_THREAD_STACK_SIZE);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static void printSummary(List<FileStats> results, long wallNanos) {
+        System.out.printf("%-24s %10s %10s %10s %10s %14s %14s%n",
+                "file", "size", "load ms", "sort ms", "save ms", "comparisons", "exchanges");
+        long totalElements = 0;
+        long totalSortNanos = 0;
+        int failed = 0;
+        for (FileStats stats : results) {
+            if (stats.error != null) {
+                failed++;
+                System.out.printf("%-24s FAILED: %s%n", stats.name, stats.error);
+                continue;
+            }
+            System.out.printf("%-24s %10d %10.3f %10.3f %10.3f %14d %14d%n", stats.name, stats.size,
+                    stats.loadNanos / 1e6, stats.sortNanos / 1e6, stats.saveNanos / 1e6,
+                    stats.metrics.getComparisons(), stats.metrics.getExchanges());
+            totalElements += stats.size;
+            totalSortNanos += stats.sortNanos;
+        }
+        System.out.printf("%d files (%d failed), %d elements, %.3f ms sorting, %.3f ms wall clock%n",
+                results.size(), failed, totalElements, totalSortNanos / 1e6, wallNanos / 1e6);
+    }
+}
@@ -0,0 +1,95 @@
+// Block partitioning after Edelkamp and Weiss, "BlockQuicksort: Avoiding Branch
+// Mispredictions in Quicksort". The classic scan branches on every comparison, and on random
+// data half of those branches are mispredicted. Here the range is handled in blocks: first the
+// offsets of the misplaced elements in a block are recorded without any branch (the result of
+// the comparison is added to the buffer index), then the recorded elements are swapped in
+// one batch. The only branches left are the loop conditions, which predict well.
+public class BlockPartition {
+    // Elements classified per block. 128 offsets on each side fit easily in L1.
+    static final int BLOCK_SIZE = 128;
+
+    // Offset buffers, one per thread so parallel sorts can partition at the same time:
+    // [0, BLOCK_SIZE) for the left block and [BLOCK_SIZE, 2 * BLOCK_SIZE) for the right.
+    private static final ThreadLocal<int[]> OFFSETS = ThreadLocal.withInitial(() -> new int[2 * BLOCK_SIZE]);
+
+    // Partitions data[low..high] around the median of the first, middle and last elements
+    // and returns the final pivot index, like QuicksortAdvanced.partitionMedianPivot.
+    static int partition(int[] data, int low, int high, SortMetrics metrics) {
+        QuicksortAdvanced.medianOfThreeToLow(data, low, high, metrics);
+        int pivot = data[low];
+        int[] offsets = OFFSETS.get();
+        // data[low+1..left-1] <= pivot and data[right+1..high] >= pivot; the rest is unsorted.
+        int left = low + 1;
+        int right = high;
+        int leftCount = 0;
+        int rightCount = 0;
+        int leftStart = 0;
+        int rightStart = 0;
+        long comparisons = 0;
+        long exchanges = 0;
+
+        while (right - left + 1 > 2 * BLOCK_SIZE) {
+            if (leftCount == 0) {
+                // Record elements of the left block that belong right (>= pivot).
+                leftStart = 0;
+                for (int j = 0; j < BLOCK_SIZE; j++) {
+                    offsets[leftCount] = j;
+                    leftCount += (int) (((long) pivot - data[left + j] - 1) >>> 63);
+                }
+                comparisons += BLOCK_SIZE;
+            }
+            if (rightCount == 0) {
+                // Record elements of the right block that belong left (<= pivot).
+                rightStart = 0;
+                for (int j = 0; j < BLOCK_SIZE; j++) {
+                    offsets[BLOCK_SIZE + rightCount] = j;
+                    rightCount += (int) (((long) data[right - j] - pivot - 1) >>> 63);
+                }
+                comparisons += BLOCK_SIZE;
+            }
+            int count = Math.min(leftCount, rightCount);
+            for (int k = 0; k < count; k++) {
+                int i = left + offsets[leftStart + k];
+                int j = right - offsets[BLOCK_SIZE + rightStart + k];
+                int temp = data[i];
+                data[i] = data[j];
+                data[j] = temp;
+            }
+            exchanges += count;
+            leftCount -= count;
+            rightCount -= count;
+            leftStart += count;
+            rightStart += count;
+            // A block whose misplaced elements have all been swapped is done.
+            if (leftCount == 0) {
+                left += BLOCK_SIZE;
+            }
+            if (rightCount == 0) {
+                right -= BLOCK_SIZE;
+            }
+        }
+
+        // Fewer than two blocks remain, including any block that still has unswapped entries;
+        // finish them with an ordinary scan that stops on keys equal to the pivot.
+        int i = left - 1;
+        int j = right + 1;
+        while (true) {
+            while (++i <= right && data[i] < pivot) {
+                comparisons++;
+            }
+            while (--j >= left && data[j] > pivot) {
+                comparisons++;
+            }
+            comparisons += 2;
+            if (i >= j) {
+                break;
+            }
+            QuicksortAdvanced.swap(data, i, j);
+            exchanges++;
+        }
+        QuicksortAdvanced.swap(data, low, j);
+        metrics.addComparisons(comparisons);
+        metrics.addExchanges(exchanges + 1);
+        return j;
+    }
+}
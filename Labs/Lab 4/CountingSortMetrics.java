@@ -0,0 +1,77 @@
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// SortMetrics backed by striped LongAdder counters. Safe to share between threads and to
+// read from a monitoring thread while a sort is still running.
+public class CountingSortMetrics implements SortMetrics {
+    private final LongAdder comparisons = new LongAdder();
+    private final LongAdder exchanges = new LongAdder();
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+
+    public CountingSortMetrics() {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void addComparisons(long count) {
+        comparisons.add(count);
+    }
+
+    @Override
+    public void addExchanges(long count) {
+        exchanges.add(count);
+    }
+
+    @Override
+    public void recordDepth(int depth) {
+        maxDepth.accumulate(depth);
+    }
+
+    @Override
+    public void addPhaseTime(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()].add(nanos);
+    }
+
+    public long getComparisons() {
+        return comparisons.sum();
+    }
+
+    public long getExchanges() {
+        return exchanges.sum();
+    }
+
+    public long getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()].sum();
+    }
+
+    public void reset() {
+        comparisons.reset();
+        exchanges.reset();
+        maxDepth.reset();
+        for (LongAdder adder : phaseNanos) {
+            adder.reset();
+        }
+    }
+
+    // Prints the counters in the same form the sort programs have always used.
+    public void print(PrintStream out) {
+        out.println("Comparisons: " + getComparisons());
+        out.println("Exchanges: " + getExchanges());
+        out.println("Max recursion depth: " + getMaxDepth());
+        for (Phase phase : Phase.values()) {
+            // Left out for the in-memory programs, which never merge runs.
+            if (phase == Phase.MERGE && getPhaseNanos(phase) == 0) {
+                continue;
+            }
+            out.printf("%s time: %.3f ms%n", phase, getPhaseNanos(phase) / 1e6);
+        }
+    }
+}
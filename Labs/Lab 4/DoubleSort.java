@@ -0,0 +1,247 @@
+// Sorts for double[] keys: the LongSort routines specialized for double, so no value is ever
+// boxed. The order is the one Double.compare and Arrays.sort use, which plain < does not give:
+// -0.0 comes before 0.0, and NaN comes after everything, including positive infinity.
+// NaNs are moved to the end before sorting, the rest is sorted with < (where -0.0 and 0.0
+// are equal), and then the block of zeros is rewritten with the negative zeros first.
+public class DoubleSort {
+    // Ranges this small are left to insertion sort.
+    static final int INSERTION_CUTOFF = 16;
+
+    public static void introsort(double[] data, int low, int high) {
+        introsort(data, low, high, SortMetrics.NONE);
+    }
+
+    public static void introsort(double[] data, int low, int high, SortMetrics metrics) {
+        if (low >= high) {
+            return;
+        }
+        int negativeZeros = countNegativeZeros(data, low, high);
+        high = moveNaNsToEnd(data, low, high);
+        if (low < high) {
+            int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(high - low + 1));
+            introsort(data, low, high, depthLimit, metrics, 1);
+        }
+        orderZeros(data, low, high, negativeZeros);
+    }
+
+    private static void introsort(double[] data, int low, int high, int depthLimit, SortMetrics metrics, int depth) {
+        while (high - low + 1 > INSERTION_CUTOFF) {
+            if (depth > depthLimit) {
+                heapSort(data, low, high, metrics);
+                return;
+            }
+            metrics.recordDepth(depth);
+            int pivotIndex = partition(data, low, high, metrics);
+            depth++;
+            if (pivotIndex - low < high - pivotIndex) {
+                introsort(data, low, pivotIndex - 1, depthLimit, metrics, depth);
+                low = pivotIndex + 1;
+            } else {
+                introsort(data, pivotIndex + 1, high, depthLimit, metrics, depth);
+                high = pivotIndex - 1;
+            }
+        }
+        insertionSort(data, low, high, metrics);
+    }
+
+    // Median-of-three pivot, then a Hoare partition whose scans stop on keys equal to the
+    // pivot, so runs of duplicates are split evenly instead of going quadratic. After the
+    // median of three, data[high] >= pivot and data[low] == pivot act as sentinels.
+    // This and the other helpers compare with < only, so they expect a range without NaNs.
+    static int partition(double[] data, int low, int high, SortMetrics metrics) {
+        int mid = (low + high) >>> 1;
+        if (data[low] > data[mid]) swap(data, low, mid);
+        if (data[low] > data[high]) swap(data, low, high);
+        if (data[mid] > data[high]) swap(data, mid, high);
+        swap(data, mid, low);
+        double pivot = data[low];
+        int i = low;
+        int j = high + 1;
+        long comparisons = 3;
+        long exchanges = 2;
+        while (true) {
+            do {
+                i++;
+                comparisons++;
+            } while (data[i] < pivot);
+            do {
+                j--;
+                comparisons++;
+            } while (pivot < data[j]);
+            if (i >= j) {
+                break;
+            }
+            swap(data, i, j);
+            exchanges++;
+        }
+        swap(data, low, j);
+        metrics.addComparisons(comparisons);
+        metrics.addExchanges(exchanges);
+        return j;
+    }
+
+    static void insertionSort(double[] data, int low, int high, SortMetrics metrics) {
+        long comparisons = 0;
+        long exchanges = 0;
+        for (int i = low + 1; i <= high; i++) {
+            double key = data[i];
+            int j = i - 1;
+            while (j >= low && data[j] > key) {
+                data[j + 1] = data[j];
+                j--;
+                comparisons++;
+                exchanges++;
+            }
+            if (j >= low) {
+                comparisons++;
+            }
+            data[j + 1] = key;
+        }
+        metrics.addComparisons(comparisons);
+        metrics.addExchanges(exchanges);
+    }
+
+    static void heapSort(double[] data, int low, int high, SortMetrics metrics) {
+        int n = high - low + 1;
+        long[] counts = new long[2];
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(data, low, i, n, counts);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(data, low, low + end);
+            counts[1]++;
+            siftDown(data, low, 0, end, counts);
+        }
+        metrics.addComparisons(counts[0]);
+        metrics.addExchanges(counts[1]);
+    }
+
+    private static void siftDown(double[] data, int low, int i, int size, long[] counts) {
+        double value = data[low + i];
+        int child;
+        while ((child = 2 * i + 1) < size) {
+            if (child + 1 < size) {
+                counts[0]++;
+                if (data[low + child + 1] > data[low + child]) {
+                    child++;
+                }
+            }
+            counts[0]++;
+            if (data[low + child] <= value) {
+                break;
+            }
+            data[low + i] = data[low + child];
+            counts[1]++;
+            i = child;
+        }
+        data[low + i] = value;
+    }
+
+    public static void mergeSort(double[] data, int low, int high) {
+        mergeSort(data, low, high, SortMetrics.NONE);
+    }
+
+    // Stable. Halves that are already in order are not merged, so sorted input is linear.
+    public static void mergeSort(double[] data, int low, int high, SortMetrics metrics) {
+        if (low >= high) {
+            return;
+        }
+        int negativeZeros = countNegativeZeros(data, low, high);
+        high = moveNaNsToEnd(data, low, high);
+        if (low < high) {
+            mergeSort(data, new double[high - low + 1], low, high, metrics, 1);
+        }
+        orderZeros(data, low, high, negativeZeros);
+    }
+
+    private static void mergeSort(double[] data, double[] scratch, int low, int high, SortMetrics metrics, int depth) {
+        if (high - low + 1 <= INSERTION_CUTOFF) {
+            insertionSort(data, low, high, metrics);
+            return;
+        }
+        metrics.recordDepth(depth);
+        int mid = (low + high) >>> 1;
+        mergeSort(data, scratch, low, mid, metrics, depth + 1);
+        mergeSort(data, scratch, mid + 1, high, metrics, depth + 1);
+        metrics.addComparisons(1);
+        if (data[mid] <= data[mid + 1]) {
+            return;
+        }
+        // Only the left half is copied out; the right half is merged from where it is.
+        int leftLength = mid - low + 1;
+        System.arraycopy(data, low, scratch, 0, leftLength);
+        int i = 0;
+        int j = mid + 1;
+        int k = low;
+        long comparisons = 0;
+        while (i < leftLength && j <= high) {
+            comparisons++;
+            data[k++] = data[j] < scratch[i] ? data[j++] : scratch[i++];
+        }
+        System.arraycopy(scratch, i, data, k, leftLength - i);
+        metrics.addComparisons(comparisons);
+        metrics.addExchanges(leftLength + (j - low));
+    }
+
+    // A long whose signed order is the order above, for sorting doubles by their bits:
+    // negative values have their magnitude bits flipped so larger magnitudes come first.
+    public static long sortableKey(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    private static int countNegativeZeros(double[] data, int low, int high) {
+        int count = 0;
+        for (int i = low; i <= high; i++) {
+            if (data[i] == 0.0 && Double.doubleToRawLongBits(data[i]) < 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Swaps every NaN to the end of the range and returns the index of the last non-NaN.
+    private static int moveNaNsToEnd(double[] data, int low, int high) {
+        while (high >= low && Double.isNaN(data[high])) {
+            high--;
+        }
+        for (int i = high - 1; i >= low; i--) {
+            if (Double.isNaN(data[i])) {
+                double nan = data[i];
+                data[i] = data[high];
+                data[high--] = nan;
+            }
+        }
+        return high;
+    }
+
+    // In the sorted range the zeros are one block; the first negativeZeros of them become -0.0.
+    private static void orderZeros(double[] data, int low, int high, int negativeZeros) {
+        if (negativeZeros == 0) {
+            return;
+        }
+        // Binary search for the first element that is not below zero.
+        int left = low;
+        int right = high + 1;
+        while (left < right) {
+            int mid = (left + right) >>> 1;
+            if (data[mid] < 0.0) {
+                left = mid + 1;
+            } else {
+                right = mid;
+            }
+        }
+        for (int i = left; i < left + negativeZeros; i++) {
+            data[i] = -0.0;
+        }
+        for (int i = left + negativeZeros; i <= high && data[i] == 0.0; i++) {
+            data[i] = 0.0;
+        }
+    }
+
+    public static void swap(double[] data, int i, int j) {
+        double temp = data[i];
+        data[i] = data[j];
+        data[j] = temp;
+    }
+}
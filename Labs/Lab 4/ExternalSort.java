@@ -0,0 +1,390 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// External merge sort for inputs larger than the heap.
+// Run generation reads the input one chunk at a time, as many ints as the memory budget
+// allows, sorts each chunk with one of the in-memory quicksorts and spills it to a
+// temporary binary file as a sorted run. The runs are then merged k at a time through a
+// binary heap of ints, pass after pass, until the last merge writes the output file.
+// Input and output can be text or .bin, as with IntFileReader and IntFileWriter.
+public class ExternalSort {
+    public static final int DEFAULT_MEMORY_MB = 256;
+    public static final int DEFAULT_FAN_IN = 64;
+    public static final String DEFAULT_VARIANT = "introsort";
+    // Every run being merged, and the output, gets at least this many ints of buffer.
+    private static final int MIN_MERGE_BUFFER = 4096;
+
+    private final long memoryBytes;
+    private final String variant;
+    private final int maxFanIn;
+    private final int mergePasses;
+    private final Path tempDir;
+    // Statistics of the last sort() call.
+    private int runCount;
+    private int passCount;
+
+    // Usage: java ExternalSort <inputFile> <outputFile> [--memory MB] [--variant name]
+    //            [--fan-in k] [--passes p] [--temp-dir dir]
+    //   --memory   memory budget for chunks and merge buffers (default 256 MB)
+    //   --variant  chunk sort: introsort, median, first, threeway or dualpivot
+    //   --fan-in   most runs merged at once (default 64)
+    //   --passes   merge in this many passes, using the smallest fan-in that allows it
+    //   --temp-dir where runs are spilled (default: the system temp directory)
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java ExternalSort <inputFile> <outputFile> [--memory MB] [--variant name]"
+                    + " [--fan-in k] [--passes p] [--temp-dir dir]");
+            return;
+        }
+        long memoryMb = DEFAULT_MEMORY_MB;
+        String variant = DEFAULT_VARIANT;
+        int fanIn = DEFAULT_FAN_IN;
+        int passes = 0;
+        String tempDir = null;
+        for (int i = 2; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--memory":
+                    memoryMb = Long.parseLong(value);
+                    break;
+                case "--variant":
+                    variant = value;
+                    break;
+                case "--fan-in":
+                    fanIn = Integer.parseInt(value);
+                    break;
+                case "--passes":
+                    passes = Integer.parseInt(value);
+                    break;
+                case "--temp-dir":
+                    tempDir = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+
+        ExternalSort sorter = new ExternalSort(memoryMb * 1024 * 1024, variant, fanIn, passes, tempDir);
+        CountingSortMetrics metrics = new CountingSortMetrics();
+        try {
+            sorter.sort(args[0], args[1], metrics);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        System.out.println("Runs: " + sorter.getRunCount());
+        System.out.println("Merge passes: " + sorter.getPassCount());
+        metrics.print(System.out);
+    }
+
+    public ExternalSort(long memoryBytes) {
+        this(memoryBytes, DEFAULT_VARIANT, DEFAULT_FAN_IN, 0, null);
+    }
+
+    // mergePasses of 0 merges in as few passes as maxFanIn allows. A null tempDir uses the
+    // system temp directory.
+    public ExternalSort(long memoryBytes, String variant, int maxFanIn, int mergePasses, String tempDir) {
+        if (memoryBytes < 2L * MIN_MERGE_BUFFER * Integer.BYTES) {
+            throw new IllegalArgumentException("Memory budget too small: " + memoryBytes + " bytes");
+        }
+        if (maxFanIn < 2) {
+            throw new IllegalArgumentException("Fan-in must be at least 2: " + maxFanIn);
+        }
+        sortChunk(new int[0], 0, variant, SortMetrics.NONE);  // rejects unknown variants up front
+        this.memoryBytes = memoryBytes;
+        this.variant = variant;
+        this.maxFanIn = maxFanIn;
+        this.mergePasses = Math.max(0, mergePasses);
+        this.tempDir = tempDir == null ? null : Paths.get(tempDir);
+    }
+
+    public int getRunCount() {
+        return runCount;
+    }
+
+    public int getPassCount() {
+        return passCount;
+    }
+
+    public void sort(String inputFile, String outputFile) throws IOException {
+        sort(inputFile, outputFile, SortMetrics.NONE);
+    }
+
+    public void sort(String inputFile, String outputFile, SortMetrics metrics) throws IOException {
+        List<Path> tempFiles = new ArrayList<>();
+        try {
+            List<Path> runs = createRuns(inputFile, outputFile, tempFiles, metrics);
+            runCount = runs.isEmpty() ? 1 : runs.size();
+            passCount = 0;
+            if (runs.isEmpty()) {
+                return;  // the input fit in one chunk and was written straight to the output
+            }
+            int fanIn = fanIn(runs.size());
+            long start = System.nanoTime();
+            while (runs.size() > fanIn) {
+                List<Path> merged = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += fanIn) {
+                    List<Path> group = runs.subList(i, Math.min(i + fanIn, runs.size()));
+                    if (group.size() == 1) {
+                        merged.add(group.get(0));
+                        continue;
+                    }
+                    Path run = createTempFile(tempFiles);
+                    merge(group, run.toString(), true, metrics);
+                    for (Path input : group) {
+                        deleteRun(input);
+                    }
+                    merged.add(run);
+                }
+                runs = merged;
+                passCount++;
+            }
+            metrics.addPhaseTime(SortMetrics.Phase.MERGE, System.nanoTime() - start);
+
+            // The last pass writes the output, so it counts as saving.
+            start = System.nanoTime();
+            merge(runs, outputFile, IntFileReader.isBinaryFile(outputFile), metrics);
+            passCount++;
+            metrics.addPhaseTime(SortMetrics.Phase.SAVE, System.nanoTime() - start);
+        } finally {
+            for (Path file : tempFiles) {
+                deleteRun(file);
+            }
+        }
+    }
+
+    // Reads and sorts the input chunk by chunk, spilling each chunk as a binary run. When the
+    // whole input fits in one chunk it is written to the output directly and no runs are made.
+    private List<Path> createRuns(String inputFile, String outputFile, List<Path> tempFiles,
+                                  SortMetrics metrics) throws IOException {
+        int chunkSize = (int) Math.min(memoryBytes / Integer.BYTES, Integer.MAX_VALUE - 8);
+        int[] chunk = new int[chunkSize];
+        List<Path> runs = new ArrayList<>();
+        try (IntFileReader reader = new IntFileReader(inputFile)) {
+            while (true) {
+                long start = System.nanoTime();
+                int count = 0;
+                int read;
+                while (count < chunkSize && (read = reader.read(chunk, count, chunkSize - count)) > 0) {
+                    count += read;
+                }
+                metrics.addPhaseTime(SortMetrics.Phase.LOAD, System.nanoTime() - start);
+                if (count == 0) {
+                    break;
+                }
+
+                start = System.nanoTime();
+                sortChunk(chunk, count, variant, metrics);
+                metrics.addPhaseTime(SortMetrics.Phase.SORT, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                if (runs.isEmpty() && count < chunkSize) {
+                    try (IntFileWriter writer = new IntFileWriter(outputFile)) {
+                        writer.write(chunk, 0, count);
+                    }
+                    metrics.addPhaseTime(SortMetrics.Phase.SAVE, System.nanoTime() - start);
+                    return runs;
+                }
+                // Spilling a run is writing sorted data, so it counts as saving; MERGE is left to the merge passes.
+                Path run = createTempFile(tempFiles);
+                try (IntFileWriter writer = new IntFileWriter(run.toString(), true)) {
+                    writer.write(chunk, 0, count);
+                }
+                runs.add(run);
+                metrics.addPhaseTime(SortMetrics.Phase.SAVE, System.nanoTime() - start);
+                if (count < chunkSize) {
+                    break;
+                }
+            }
+        }
+        if (runs.isEmpty()) {
+            // Empty input: still produce an empty output file.
+            new IntFileWriter(outputFile).close();
+        }
+        return runs;
+    }
+
+    private static void sortChunk(int[] data, int count, String variant, SortMetrics metrics) {
+        int high = count - 1;
+        switch (variant) {
+            case "introsort":
+                QuicksortAdvanced.introsort(data, 0, high, metrics);
+                break;
+            case "median":
+                QuicksortAdvanced.quicksort(data, 0, high, PartitionStrategy.MEDIAN_OF_THREE, metrics);
+                break;
+            case "first":
+                QuicksortAdvanced.quicksort(data, 0, high, PartitionStrategy.FIRST_PIVOT, metrics);
+                break;
+            case "threeway":
+                QuicksortAdvanced.quicksort(data, 0, high, PartitionStrategy.THREE_WAY, metrics);
+                break;
+            case "dualpivot":
+                QuicksortAdvanced.quicksort(data, 0, high, PartitionStrategy.DUAL_PIVOT, metrics);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown variant: " + variant);
+        }
+    }
+
+    // The number of runs merged at once: limited by maxFanIn and by how many buffers of
+    // MIN_MERGE_BUFFER ints fit in memory, and as small as possible when a pass count is set.
+    private int fanIn(int runs) {
+        long buffers = memoryBytes / Integer.BYTES / MIN_MERGE_BUFFER - 1;
+        int limit = (int) Math.max(2, Math.min(maxFanIn, buffers));
+        if (mergePasses == 0) {
+            return limit;
+        }
+        for (int k = 2; k < limit; k++) {
+            long reach = 1;
+            for (int p = 0; p < mergePasses && reach < runs; p++) {
+                reach *= k;
+            }
+            if (reach >= runs) {
+                return k;
+            }
+        }
+        return limit;
+    }
+
+    // Merges sorted binary runs into one output file with a binary min-heap keyed on the
+    // next value of each run.
+    private void merge(List<Path> inputs, String outputFile, boolean binary, SortMetrics metrics)
+            throws IOException {
+        int k = inputs.size();
+        int bufferSize = (int) Math.max(MIN_MERGE_BUFFER,
+                Math.min(memoryBytes / Integer.BYTES / (k + 1), Integer.MAX_VALUE - 8));
+        RunReader[] readers = new RunReader[k];
+        int[] heapKey = new int[k];
+        int[] heapRun = new int[k];
+        int heapSize = 0;
+        long comparisons = 0;
+        try (IntFileWriter writer = new IntFileWriter(outputFile, binary)) {
+            for (int i = 0; i < k; i++) {
+                readers[i] = new RunReader(inputs.get(i), bufferSize);
+                if (readers[i].hasNext()) {
+                    heapKey[heapSize] = readers[i].next();
+                    heapRun[heapSize] = i;
+                    heapSize++;
+                }
+            }
+            for (int i = heapSize / 2 - 1; i >= 0; i--) {
+                comparisons += siftDown(heapKey, heapRun, i, heapSize);
+            }
+
+            int[] out = new int[bufferSize];
+            int outCount = 0;
+            while (heapSize > 0) {
+                out[outCount++] = heapKey[0];
+                if (outCount == out.length) {
+                    writer.write(out, 0, outCount);
+                    outCount = 0;
+                }
+                RunReader reader = readers[heapRun[0]];
+                if (reader.hasNext()) {
+                    heapKey[0] = reader.next();
+                } else {
+                    heapSize--;
+                    heapKey[0] = heapKey[heapSize];
+                    heapRun[0] = heapRun[heapSize];
+                }
+                comparisons += siftDown(heapKey, heapRun, 0, heapSize);
+            }
+            writer.write(out, 0, outCount);
+        } finally {
+            for (RunReader reader : readers) {
+                if (reader != null) {
+                    reader.close();
+                }
+            }
+            metrics.addComparisons(comparisons);
+        }
+    }
+
+    // Restores the heap below i. Equal keys are ordered by run index so the merge is stable.
+    // Returns the number of comparisons made.
+    private static long siftDown(int[] key, int[] run, int i, int size) {
+        long comparisons = 0;
+        int k = key[i];
+        int r = run[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size) {
+                comparisons++;
+                if (key[child + 1] < key[child] || (key[child + 1] == key[child] && run[child + 1] < run[child])) {
+                    child++;
+                }
+            }
+            comparisons++;
+            if (k < key[child] || (k == key[child] && r < run[child])) {
+                break;
+            }
+            key[i] = key[child];
+            run[i] = run[child];
+            i = child;
+        }
+        key[i] = k;
+        run[i] = r;
+        return comparisons;
+    }
+
+    private Path createTempFile(List<Path> tempFiles) throws IOException {
+        Path file = tempDir == null
+                ? Files.createTempFile("run", ".bin")
+                : Files.createTempFile(tempDir, "run", ".bin");
+        tempFiles.add(file);
+        return file;
+    }
+
+    // A run that was just read may still be mapped, which stops it being deleted on Windows
+    // until the mapping is collected; such files are removed when the JVM exits instead.
+    private static void deleteRun(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    // Buffered sequential reader over one binary run.
+    private static class RunReader {
+        private final IntFileReader reader;
+        private final int[] buffer;
+        private int position = 0;
+        private int limit = 0;
+
+        RunReader(Path file, int bufferSize) throws IOException {
+            this.reader = new IntFileReader(file.toString(), true);
+            this.buffer = new int[bufferSize];
+        }
+
+        boolean hasNext() throws IOException {
+            if (position < limit) {
+                return true;
+            }
+            int read = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            limit = Math.max(read, 0);
+            return limit > 0;
+        }
+
+        int next() {
+            return buffer[position++];
+        }
+
+        void close() throws IOException {
+            reader.close();
+        }
+    }
+}
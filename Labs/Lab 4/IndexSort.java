@@ -0,0 +1,138 @@
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+// Sorts record arrays by key without moving the records. The key of every record is
+// extracted once into a long[], and the keys are sorted together with the record indices;
+// the result is the index order, which can be walked directly or applied with reorder.
+// Records with equal keys keep their input order.
+public class IndexSort {
+    // Ranges this small are left to insertion sort.
+    static final int INSERTION_CUTOFF = 16;
+
+    // Returns the indices of keys in ascending key order. keys is not modified.
+    public static int[] sortIndicesByKey(long[] keys) {
+        return sortIndicesByKey(keys, SortMetrics.NONE);
+    }
+
+    public static int[] sortIndicesByKey(long[] keys, SortMetrics metrics) {
+        int n = keys.length;
+        long[] sortedKeys = keys.clone();
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        if (n > 1) {
+            mergeSort(sortedKeys, order, new long[n], new int[n], 0, n - 1, metrics, 1);
+        }
+        return order;
+    }
+
+    public static <T> int[] sortIndicesByKey(T[] records, ToLongFunction<? super T> key) {
+        long[] keys = new long[records.length];
+        for (int i = 0; i < records.length; i++) {
+            keys[i] = key.applyAsLong(records[i]);
+        }
+        return sortIndicesByKey(keys);
+    }
+
+    // Double keys are ordered as by Double.compare: -0.0 before 0.0 and NaN last.
+    public static <T> int[] sortIndicesByDoubleKey(T[] records, ToDoubleFunction<? super T> key) {
+        long[] keys = new long[records.length];
+        for (int i = 0; i < records.length; i++) {
+            keys[i] = DoubleSort.sortableKey(key.applyAsDouble(records[i]));
+        }
+        return sortIndicesByKey(keys);
+    }
+
+    // Rearranges records in place so records[i] becomes the old records[order[i]]. Follows
+    // the cycles of the permutation, so each record is moved once and no copy of the array is
+    // made. order is marked while the cycles are walked and restored before returning.
+    public static <T> void reorder(T[] records, int[] order) {
+        if (order.length != records.length) {
+            throw new IllegalArgumentException("Order has " + order.length + " entries for "
+                    + records.length + " records");
+        }
+        for (int start = 0; start < order.length; start++) {
+            if (order[start] < 0) {
+                continue;
+            }
+            T first = records[start];
+            int i = start;
+            while (true) {
+                int source = order[i];
+                order[i] = ~source;
+                if (source == start) {
+                    records[i] = first;
+                    break;
+                }
+                records[i] = records[source];
+                i = source;
+            }
+        }
+        for (int i = 0; i < order.length; i++) {
+            order[i] = ~order[i];
+        }
+    }
+
+    // Stable merge sort of keys[low..high], moving order[] along with the keys.
+    private static void mergeSort(long[] keys, int[] order, long[] keyScratch, int[] orderScratch,
+                                  int low, int high, SortMetrics metrics, int depth) {
+        if (high - low + 1 <= INSERTION_CUTOFF) {
+            insertionSort(keys, order, low, high, metrics);
+            return;
+        }
+        metrics.recordDepth(depth);
+        int mid = (low + high) >>> 1;
+        mergeSort(keys, order, keyScratch, orderScratch, low, mid, metrics, depth + 1);
+        mergeSort(keys, order, keyScratch, orderScratch, mid + 1, high, metrics, depth + 1);
+        metrics.addComparisons(1);
+        if (keys[mid] <= keys[mid + 1]) {
+            return;
+        }
+        int leftLength = mid - low + 1;
+        System.arraycopy(keys, low, keyScratch, 0, leftLength);
+        System.arraycopy(order, low, orderScratch, 0, leftLength);
+        int i = 0;
+        int j = mid + 1;
+        int k = low;
+        long comparisons = 0;
+        while (i < leftLength && j <= high) {
+            comparisons++;
+            if (keys[j] < keyScratch[i]) {
+                keys[k] = keys[j];
+                order[k++] = order[j++];
+            } else {
+                keys[k] = keyScratch[i];
+                order[k++] = orderScratch[i++];
+            }
+        }
+        System.arraycopy(keyScratch, i, keys, k, leftLength - i);
+        System.arraycopy(orderScratch, i, order, k, leftLength - i);
+        metrics.addComparisons(comparisons);
+        metrics.addExchanges(leftLength + (j - low));
+    }
+
+    private static void insertionSort(long[] keys, int[] order, int low, int high, SortMetrics metrics) {
+        long comparisons = 0;
+        long exchanges = 0;
+        for (int i = low + 1; i <= high; i++) {
+            long key = keys[i];
+            int index = order[i];
+            int j = i - 1;
+            while (j >= low && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                order[j + 1] = order[j];
+                j--;
+                comparisons++;
+                exchanges++;
+            }
+            if (j >= low) {
+                comparisons++;
+            }
+            keys[j + 1] = key;
+            order[j + 1] = index;
+        }
+        metrics.addComparisons(comparisons);
+        metrics.addExchanges(exchanges);
+    }
+}
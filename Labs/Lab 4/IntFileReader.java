@@ -0,0 +1,212 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Reads the integers of a data file in a single pass through a memory-mapped FileChannel.
+// Two formats are understood:
+//   text   - ASCII integers separated by any whitespace, as in the .dat files. Digits are
+//            parsed by hand straight from the mapped bytes; no Strings are created.
+//   binary - raw 32-bit little-endian ints with nothing else in the file, which loads with
+//            no parsing at all. Files ending in .bin are treated as binary.
+// Files are mapped one window at a time, so inputs larger than 2 GB work as well.
+public class IntFileReader implements Closeable {
+    // Bytes mapped at a time; a multiple of 4 so binary ints never straddle two windows.
+    private static final long WINDOW_SIZE = 1L << 26;
+    // Text is copied out of the mapping in chunks this size and parsed from a plain array.
+    private static final int CHUNK_SIZE = 1 << 16;
+    // readAll starts a text file's array at one int per this many bytes, about the size of a
+    // 10-digit line, and grows it from there; a larger guess would waste heap on short lines.
+    private static final int TEXT_BYTES_PER_INT_ESTIMATE = 12;
+    // Most ints readAll allocates up front for a text file, so the growth path handles large files.
+    private static final int MAX_TEXT_ESTIMATE = 1 << 24;
+
+    private final String fileName;
+    private final FileChannel channel;
+    private final boolean binary;
+    private final long fileSize;
+    private long windowStart = 0;
+    private MappedByteBuffer window;
+
+    // Text parsing state, kept between calls since a number can span two chunks.
+    private final byte[] chunk;
+    private int chunkPosition = 0;
+    private int chunkLimit = 0;
+    private long chunkStart = 0;
+    private long value = 0;
+    private boolean negative = false;
+    private boolean inNumber = false;
+    private boolean sawDigit = false;
+
+    public IntFileReader(String fileName) throws IOException {
+        this(fileName, isBinaryFile(fileName));
+    }
+
+    public IntFileReader(String fileName, boolean binary) throws IOException {
+        this.fileName = fileName;
+        this.binary = binary;
+        this.channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.chunk = binary ? null : new byte[CHUNK_SIZE];
+        if (binary && fileSize % Integer.BYTES != 0) {
+            channel.close();
+            throw new IOException("Binary file " + fileName + " is not a whole number of ints");
+        }
+    }
+
+    public static boolean isBinaryFile(String fileName) {
+        return fileName.endsWith(".bin");
+    }
+
+    // Loads every integer in the file.
+    public static int[] readAll(String fileName) throws IOException {
+        try (IntFileReader reader = new IntFileReader(fileName)) {
+            return reader.readAll();
+        }
+    }
+
+    public int[] readAll() throws IOException {
+        long estimate = binary ? fileSize / Integer.BYTES
+                : Math.min(fileSize / TEXT_BYTES_PER_INT_ESTIMATE + 16, MAX_TEXT_ESTIMATE);
+        int[] data = new int[(int) Math.min(estimate, Integer.MAX_VALUE - 8)];
+        int count = 0;
+        while (true) {
+            if (count == data.length) {
+                int newLength = grow(data.length);
+                if (newLength == data.length) {
+                    throw new IOException(fileName + " holds more integers than fit in an int array");
+                }
+                data = Arrays.copyOf(data, newLength);
+            }
+            int read = read(data, count, data.length - count);
+            if (read < 0) {
+                break;
+            }
+            count += read;
+        }
+        return count == data.length ? data : Arrays.copyOf(data, count);
+    }
+
+    // Reads up to length integers into buffer[offset..]. Returns how many were read, or -1
+    // once the file is exhausted.
+    public int read(int[] buffer, int offset, int length) throws IOException {
+        return binary ? readBinary(buffer, offset, length) : readText(buffer, offset, length);
+    }
+
+    private int readBinary(int[] buffer, int offset, int length) throws IOException {
+        int count = 0;
+        while (count < length) {
+            if (!ensureWindow()) {
+                break;
+            }
+            int available = window.remaining() / Integer.BYTES;
+            int n = Math.min(available, length - count);
+            window.asIntBuffer().get(buffer, offset + count, n);
+            window.position(window.position() + n * Integer.BYTES);
+            count += n;
+        }
+        return count == 0 && length > 0 ? -1 : count;
+    }
+
+    private int readText(int[] buffer, int offset, int length) throws IOException {
+        int count = 0;
+        byte[] bytes = chunk;
+        while (count < length) {
+            if (chunkPosition == chunkLimit && !fillChunk()) {
+                // End of file; a number running up to the last byte is still complete.
+                if (inNumber) {
+                    buffer[offset + count++] = finishNumber();
+                }
+                break;
+            }
+            int position = chunkPosition;
+            int limit = chunkLimit;
+            while (position < limit && count < length) {
+                int b = bytes[position++];
+                if (b >= '0' && b <= '9') {
+                    value = value * 10 + (b - '0');
+                    sawDigit = true;
+                    inNumber = true;
+                    if (value > (long) Integer.MAX_VALUE + 1) {
+                        throw numberError("Number out of int range", chunkStart + position - 1);
+                    }
+                } else if (b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f') {
+                    if (inNumber) {
+                        buffer[offset + count++] = finishNumber();
+                    }
+                } else if ((b == '-' || b == '+') && !inNumber) {
+                    negative = b == '-';
+                    inNumber = true;
+                } else {
+                    throw numberError("Invalid character '" + (char) (b & 0xFF) + "'", chunkStart + position - 1);
+                }
+            }
+            chunkPosition = position;
+        }
+        return count == 0 && length > 0 ? -1 : count;
+    }
+
+    private int finishNumber() {
+        if (!sawDigit) {
+            throw new NumberFormatException("Sign without digits in file " + fileName);
+        }
+        long result = negative ? -value : value;
+        if (result > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Number out of int range in file " + fileName);
+        }
+        value = 0;
+        negative = false;
+        inNumber = false;
+        sawDigit = false;
+        return (int) result;
+    }
+
+    private NumberFormatException numberError(String message, long byteOffset) {
+        return new NumberFormatException(message + " at byte " + byteOffset + " of file " + fileName);
+    }
+
+    // Copies the next chunk of text out of the mapping. Returns false at end of file.
+    private boolean fillChunk() throws IOException {
+        if (!ensureWindow()) {
+            return false;
+        }
+        chunkStart = windowStart + window.position();
+        int n = Math.min(CHUNK_SIZE, window.remaining());
+        window.get(chunk, 0, n);
+        chunkPosition = 0;
+        chunkLimit = n;
+        return true;
+    }
+
+    // Makes sure the current window has bytes left, mapping the next one if needed.
+    private boolean ensureWindow() throws IOException {
+        if (window != null && window.hasRemaining()) {
+            return true;
+        }
+        if (window != null) {
+            windowStart += window.capacity();
+        }
+        if (windowStart >= fileSize) {
+            return false;
+        }
+        long size = Math.min(WINDOW_SIZE, fileSize - windowStart);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        return true;
+    }
+
+    private static int grow(int length) {
+        int newLength = length + (length >> 1) + 16;
+        return newLength < 0 || newLength > Integer.MAX_VALUE - 8 ? Integer.MAX_VALUE - 8 : newLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,216 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Writes integers to a file through a FileChannel, the counterpart of IntFileReader.
+// Two formats are produced:
+//   text   - one integer per line, the same bytes the old BufferedWriter code wrote. Digits
+//            are formatted straight into a reusable byte buffer; no Strings are created.
+//   binary - raw 32-bit little-endian ints. Files ending in .bin are written as binary.
+// writeAll can also write a whole array through a memory-mapped file instead of the channel.
+public class IntFileWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Bytes mapped at a time by writeAll(..., true).
+    private static final long WINDOW_SIZE = 1L << 26;
+    // Longest text value: "-2147483648" followed by a line separator.
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes();
+    private static final int MAX_TEXT_BYTES = 11 + LINE_SEPARATOR.length;
+    // Integer.MIN_VALUE has no positive counterpart to format, so its digits are kept ready.
+    private static final byte[] MIN_VALUE_TEXT = Integer.toString(Integer.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+    // "00" "01" ... "99", so two digits are produced per division.
+    private static final byte[] DIGIT_PAIRS = new byte[200];
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_PAIRS[2 * i] = (byte) ('0' + i / 10);
+            DIGIT_PAIRS[2 * i + 1] = (byte) ('0' + i % 10);
+        }
+    }
+
+    private final FileChannel channel;
+    private final boolean binary;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+    private int position = 0;
+
+    public IntFileWriter(String fileName) throws IOException {
+        this(fileName, IntFileReader.isBinaryFile(fileName));
+    }
+
+    public IntFileWriter(String fileName, boolean binary) throws IOException {
+        this.binary = binary;
+        this.channel = openForWrite(fileName, false);
+    }
+
+    // Writes the whole array, choosing the format from the file name.
+    public static void writeAll(String fileName, int[] data) throws IOException {
+        writeAll(fileName, data, false);
+    }
+
+    // With mapped, the exact output size is worked out first and the file is written through
+    // memory-mapped windows; otherwise the bytes go through the channel in buffer-sized writes.
+    public static void writeAll(String fileName, int[] data, boolean mapped) throws IOException {
+        boolean binary = IntFileReader.isBinaryFile(fileName);
+        if (!mapped) {
+            try (IntFileWriter writer = new IntFileWriter(fileName, binary)) {
+                writer.write(data, 0, data.length);
+            }
+            return;
+        }
+        long size = binary ? (long) data.length * Integer.BYTES : textSize(data);
+        try (FileChannel out = openForWrite(fileName, true)) {
+            byte[] chunk = new byte[BUFFER_SIZE];
+            long windowStart = 0;
+            MappedByteBuffer window = null;
+            int i = 0;
+            while (i < data.length) {
+                // Format as many values as fit in the chunk, then copy it into the mapping.
+                int length = 0;
+                while (i < data.length && length + MAX_TEXT_BYTES <= chunk.length) {
+                    length = binary ? putBinary(chunk, length, data[i++]) : putText(chunk, length, data[i++]);
+                }
+                int copied = 0;
+                while (copied < length) {
+                    if (window == null || !window.hasRemaining()) {
+                        if (window != null) {
+                            windowStart += window.capacity();
+                        }
+                        window = out.map(FileChannel.MapMode.READ_WRITE, windowStart,
+                                Math.min(WINDOW_SIZE, size - windowStart));
+                    }
+                    int n = Math.min(length - copied, window.remaining());
+                    window.put(chunk, copied, n);
+                    copied += n;
+                }
+            }
+            if (window != null) {
+                window.force();
+            }
+        }
+    }
+
+    public void write(int value) throws IOException {
+        if (position + MAX_TEXT_BYTES > buffer.length) {
+            flushBuffer();
+        }
+        position = binary ? putBinary(buffer, position, value) : putText(buffer, position, value);
+    }
+
+    public void write(int[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        if (binary) {
+            // Whole blocks of ints go through the int view of the buffer in one call.
+            while (offset < end) {
+                if (position + Integer.BYTES > buffer.length) {
+                    flushBuffer();
+                }
+                int n = Math.min(end - offset, (buffer.length - position) / Integer.BYTES);
+                byteBuffer.position(position);
+                byteBuffer.asIntBuffer().put(data, offset, n);
+                position += n * Integer.BYTES;
+                offset += n;
+            }
+            return;
+        }
+        for (int i = offset; i < end; i++) {
+            if (position + MAX_TEXT_BYTES > buffer.length) {
+                flushBuffer();
+            }
+            position = putText(buffer, position, data[i]);
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        ByteBuffer pending = ByteBuffer.wrap(buffer, 0, position);
+        while (pending.hasRemaining()) {
+            channel.write(pending);
+        }
+        position = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static FileChannel openForWrite(String fileName, boolean read) throws IOException {
+        if (read) {
+            // Mapping READ_WRITE needs a channel opened for reading as well.
+            return FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    private static int putBinary(byte[] bytes, int pos, int value) {
+        bytes[pos] = (byte) value;
+        bytes[pos + 1] = (byte) (value >>> 8);
+        bytes[pos + 2] = (byte) (value >>> 16);
+        bytes[pos + 3] = (byte) (value >>> 24);
+        return pos + Integer.BYTES;
+    }
+
+    // Formats value and a line separator into bytes[pos..] and returns the new position.
+    private static int putText(byte[] bytes, int pos, int value) {
+        if (value == Integer.MIN_VALUE) {
+            System.arraycopy(MIN_VALUE_TEXT, 0, bytes, pos, MIN_VALUE_TEXT.length);
+            pos += MIN_VALUE_TEXT.length;
+        } else {
+            if (value < 0) {
+                bytes[pos++] = '-';
+                value = -value;
+            }
+            int end = pos + digits(value);
+            int i = end;
+            while (value >= 100) {
+                int pair = value % 100;
+                value /= 100;
+                bytes[--i] = DIGIT_PAIRS[2 * pair + 1];
+                bytes[--i] = DIGIT_PAIRS[2 * pair];
+            }
+            if (value >= 10) {
+                bytes[--i] = DIGIT_PAIRS[2 * value + 1];
+                bytes[--i] = DIGIT_PAIRS[2 * value];
+            } else {
+                bytes[--i] = (byte) ('0' + value);
+            }
+            pos = end;
+        }
+        for (byte b : LINE_SEPARATOR) {
+            bytes[pos++] = b;
+        }
+        return pos;
+    }
+
+    // Number of digits in a non-negative int.
+    private static int digits(int value) {
+        int limit = 10;
+        for (int n = 1; n < 10; n++) {
+            if (value < limit) {
+                return n;
+            }
+            limit *= 10;
+        }
+        return 10;
+    }
+
+    // Exact size of the text form of data, so a mapped file can be sized up front.
+    private static long textSize(int[] data) {
+        long size = (long) data.length * LINE_SEPARATOR.length;
+        for (int value : data) {
+            size += value == Integer.MIN_VALUE ? 11 : value < 0 ? 1 + digits(-value) : digits(value);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,154 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+// A singly linked list of ints kept as two parallel arrays, value[] and next[], instead of
+// one ListNode object per element. A node is an index into those arrays and NIL ends the
+// list. That is 8 bytes per element rather than a 16-byte object header plus a reference,
+// and the nodes sit next to each other in memory instead of wherever the allocator put them.
+//
+// With offHeap the arrays live in direct buffers outside the Java heap, so the garbage
+// collector never scans or copies them. Direct buffers are limited by
+// -XX:MaxDirectMemorySize, which defaults to the maximum heap size (-Xmx).
+public class IntLinkedList {
+    public static final int NIL = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final boolean offHeap;
+    // On-heap storage.
+    private int[] values;
+    private int[] next;
+    // Off-heap storage.
+    private IntBuffer valueBuffer;
+    private IntBuffer nextBuffer;
+
+    private int capacity;
+    private int size = 0;
+    private int head = NIL;
+    private int tail = NIL;
+
+    public IntLinkedList() {
+        this(DEFAULT_CAPACITY, false);
+    }
+
+    public IntLinkedList(int capacity, boolean offHeap) {
+        this.offHeap = offHeap;
+        allocate(Math.max(1, capacity));
+    }
+
+    public static IntLinkedList offHeap(int capacity) {
+        return new IntLinkedList(capacity, true);
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int head() {
+        return head;
+    }
+
+    public int value(int node) {
+        return offHeap ? valueBuffer.get(node) : values[node];
+    }
+
+    public int next(int node) {
+        return offHeap ? nextBuffer.get(node) : next[node];
+    }
+
+    // Appends a value and returns its node index.
+    public int add(int value) {
+        if (size == capacity) {
+            grow();
+        }
+        int node = size++;
+        if (offHeap) {
+            valueBuffer.put(node, value);
+            nextBuffer.put(node, NIL);
+        } else {
+            values[node] = value;
+            next[node] = NIL;
+        }
+        if (tail == NIL) {
+            head = node;
+        } else {
+            setNext(tail, node);
+        }
+        tail = node;
+        return node;
+    }
+
+    // Removes every element but keeps the storage.
+    public void clear() {
+        size = 0;
+        head = NIL;
+        tail = NIL;
+    }
+
+    // Copies the values into an array in list order.
+    public int[] toArray() {
+        int[] result = new int[size];
+        int i = 0;
+        for (int node = head; node != NIL; node = next(node)) {
+            result[i++] = value(node);
+        }
+        return result;
+    }
+
+    // Link updates for the sorts, which reorder the list without moving any values.
+    void setNext(int node, int nextNode) {
+        if (offHeap) {
+            nextBuffer.put(node, nextNode);
+        } else {
+            next[node] = nextNode;
+        }
+    }
+
+    void setHeadAndTail(int head, int tail) {
+        this.head = head;
+        this.tail = tail;
+    }
+
+    private void allocate(int newCapacity) {
+        if (offHeap) {
+            valueBuffer = allocateDirect(newCapacity);
+            nextBuffer = allocateDirect(newCapacity);
+        } else {
+            values = new int[newCapacity];
+            next = new int[newCapacity];
+        }
+        capacity = newCapacity;
+    }
+
+    private void grow() {
+        int newCapacity = capacity + (capacity >> 1) + 1;
+        if (newCapacity < 0 || (offHeap && newCapacity > Integer.MAX_VALUE / Integer.BYTES)) {
+            newCapacity = offHeap ? Integer.MAX_VALUE / Integer.BYTES : Integer.MAX_VALUE - 8;
+            if (newCapacity <= capacity) {
+                throw new IllegalStateException("IntLinkedList is full at " + capacity + " elements");
+            }
+        }
+        if (offHeap) {
+            IntBuffer oldValues = valueBuffer;
+            IntBuffer oldNext = nextBuffer;
+            allocate(newCapacity);
+            oldValues.clear().limit(size);
+            oldNext.clear().limit(size);
+            valueBuffer.put(oldValues).clear();
+            nextBuffer.put(oldNext).clear();
+        } else {
+            values = Arrays.copyOf(values, newCapacity);
+            next = Arrays.copyOf(next, newCapacity);
+            capacity = newCapacity;
+        }
+    }
+
+    private static IntBuffer allocateDirect(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+}
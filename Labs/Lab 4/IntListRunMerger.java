@@ -0,0 +1,226 @@
+// ListRunMerger for IntLinkedList: the same run detection, run stack and block-linking
+// merge, working on node indices instead of ListNode references.
+class IntListRunMerger {
+    private static final int NIL = IntLinkedList.NIL;
+    // Runs shorter than this are extended by insertion before they are pushed.
+    private static final int MIN_RUN = 16;
+    // Enough pending runs for any list that fits in memory given the stack invariants.
+    private static final int MAX_RUNS = 49;
+
+    private final IntLinkedList list;
+    private final int[] runHead = new int[MAX_RUNS];
+    private final int[] runTail = new int[MAX_RUNS];
+    private final int[] runLen = new int[MAX_RUNS];
+    private int stackSize = 0;
+    private int maxStackSize = 1;
+    private long comparisons = 0;
+
+    private IntListRunMerger(IntLinkedList list) {
+        this.list = list;
+    }
+
+    static void sort(IntLinkedList list, SortMetrics metrics) {
+        if (list.size() < 2) {
+            return;
+        }
+        IntListRunMerger merger = new IntListRunMerger(list);
+        int rest = list.head();
+        while (rest != NIL) {
+            rest = merger.pushNextRun(rest);
+            merger.mergeCollapse();
+        }
+        merger.mergeForceCollapse();
+        list.setHeadAndTail(merger.runHead[0], merger.runTail[0]);
+        metrics.recordDepth(merger.maxStackSize);
+        metrics.addComparisons(merger.comparisons);
+    }
+
+    // Cuts the run that starts at rest off the list, pushes it and returns what is left.
+    private int pushNextRun(int rest) {
+        IntLinkedList list = this.list;
+        int head = rest;
+        int tail = rest;
+        int headValue = list.value(head);
+        int tailValue = headValue;
+        int length = 1;
+        rest = list.next(rest);
+        long comparisons = 0;
+
+        if (rest != NIL && list.value(rest) < tailValue) {
+            // Strictly descending: reverse it by prepending each node.
+            comparisons++;
+            list.setNext(tail, NIL);
+            while (rest != NIL && list.value(rest) < headValue) {
+                comparisons++;
+                int next = list.next(rest);
+                list.setNext(rest, head);
+                head = rest;
+                headValue = list.value(head);
+                rest = next;
+                length++;
+            }
+        } else {
+            while (rest != NIL && list.value(rest) >= tailValue) {
+                comparisons++;
+                tail = rest;
+                tailValue = list.value(tail);
+                rest = list.next(rest);
+                length++;
+            }
+            list.setNext(tail, NIL);
+        }
+        if (rest != NIL) {
+            comparisons++;
+        }
+
+        // Extend a short run by inserting the following nodes into it.
+        while (length < MIN_RUN && rest != NIL) {
+            int node = rest;
+            int value = list.value(node);
+            rest = list.next(rest);
+            comparisons++;
+            if (value >= tailValue) {
+                list.setNext(tail, node);
+                list.setNext(node, NIL);
+                tail = node;
+                tailValue = value;
+            } else {
+                comparisons++;
+                if (value < headValue) {
+                    list.setNext(node, head);
+                    head = node;
+                    headValue = value;
+                } else {
+                    // Insert after the last node not greater than it, keeping equal keys stable.
+                    int previous = head;
+                    while (list.value(list.next(previous)) <= value) {
+                        comparisons++;
+                        previous = list.next(previous);
+                    }
+                    comparisons++;
+                    list.setNext(node, list.next(previous));
+                    list.setNext(previous, node);
+                }
+            }
+            length++;
+        }
+
+        runHead[stackSize] = head;
+        runTail[stackSize] = tail;
+        runLen[stackSize] = length;
+        stackSize++;
+        maxStackSize = Math.max(maxStackSize, stackSize);
+        this.comparisons += comparisons;
+        return rest;
+    }
+
+    private void mergeCollapse() {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if (n > 0 && runLen[n - 1] <= runLen[n] + runLen[n + 1]
+                    || n > 1 && runLen[n - 2] <= runLen[n] + runLen[n - 1]) {
+                if (runLen[n - 1] < runLen[n + 1]) {
+                    n--;
+                }
+            } else if (runLen[n] > runLen[n + 1]) {
+                break;
+            }
+            mergeAt(n);
+        }
+    }
+
+    private void mergeForceCollapse() {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if (n > 0 && runLen[n - 1] < runLen[n + 1]) {
+                n--;
+            }
+            mergeAt(n);
+        }
+    }
+
+    // Merges the runs at stack positions i and i + 1 into position i.
+    private void mergeAt(int i) {
+        IntLinkedList list = this.list;
+        int a = runHead[i];
+        int aTail = runTail[i];
+        int b = runHead[i + 1];
+        int bTail = runTail[i + 1];
+        runLen[i] += runLen[i + 1];
+        if (i == stackSize - 3) {
+            runHead[i + 1] = runHead[i + 2];
+            runTail[i + 1] = runTail[i + 2];
+            runLen[i + 1] = runLen[i + 2];
+        }
+        stackSize--;
+
+        long comparisons = 1;
+        int aValue = list.value(a);
+        int bValue = list.value(b);
+        if (list.value(aTail) <= bValue) {
+            list.setNext(aTail, b);
+            runTail[i] = bTail;
+            this.comparisons += comparisons;
+            return;
+        }
+        comparisons++;
+        if (list.value(bTail) < aValue) {
+            list.setNext(bTail, a);
+            runHead[i] = b;
+            this.comparisons += comparisons;
+            return;
+        }
+
+        int head = NIL;
+        int tail = NIL;
+        while (a != NIL && b != NIL) {
+            int first;
+            int last;
+            comparisons++;
+            if (bValue < aValue) {
+                // Take every b node smaller than a's head in one stretch.
+                first = b;
+                last = b;
+                int following = list.next(last);
+                while (following != NIL && (bValue = list.value(following)) < aValue) {
+                    comparisons++;
+                    last = following;
+                    following = list.next(last);
+                }
+                if (following != NIL) {
+                    comparisons++;
+                }
+                b = following;
+            } else {
+                // Take every a node not greater than b's head; a wins ties for stability.
+                first = a;
+                last = a;
+                int following = list.next(last);
+                while (following != NIL && (aValue = list.value(following)) <= bValue) {
+                    comparisons++;
+                    last = following;
+                    following = list.next(last);
+                }
+                if (following != NIL) {
+                    comparisons++;
+                }
+                a = following;
+            }
+            if (head == NIL) {
+                head = first;
+            } else {
+                list.setNext(tail, first);
+            }
+            tail = last;
+        }
+        if (a != NIL) {
+            list.setNext(tail, a);
+            runTail[i] = aTail;
+        } else {
+            list.setNext(tail, b);
+            runTail[i] = bTail;
+        }
+        runHead[i] = head;
+        this.comparisons += comparisons;
+    }
+}
@@ -0,0 +1,6 @@
+// Node of the singly linked list sorted by NaturalMergeSort and ListRunMerger.
+class ListNode {
+    int value;
+    ListNode next;
+    ListNode(int x) { value = x; }
+}
@@ -0,0 +1,216 @@
+// Natural merge sort for ListNode chains. Like ArrayRunMerger it splits the list into its
+// existing runs (reversing strictly descending ones by relinking), extends short runs by
+// insertion, and merges runs off a stack with the same length invariants. Each run keeps
+// its tail, so two runs that are already in order are joined with a single link.
+//
+// A list has no random access, so galloping takes the form of block moves: when one run
+// wins, the merge walks ahead over everything else it wins and links the whole stretch at
+// once, rather than relinking node by node.
+class ListRunMerger {
+    // Runs shorter than this are extended by insertion before they are pushed.
+    private static final int MIN_RUN = 16;
+    // Enough pending runs for any list that fits in memory given the stack invariants.
+    private static final int MAX_RUNS = 49;
+
+    private final ListNode[] runHead = new ListNode[MAX_RUNS];
+    private final ListNode[] runTail = new ListNode[MAX_RUNS];
+    private final int[] runLen = new int[MAX_RUNS];
+    private int stackSize = 0;
+    private int maxStackSize = 1;
+    private long comparisons = 0;
+
+    static ListNode sort(ListNode head, SortMetrics metrics) {
+        if (head == null || head.next == null) {
+            return head;
+        }
+        ListRunMerger merger = new ListRunMerger();
+        ListNode rest = head;
+        while (rest != null) {
+            rest = merger.pushNextRun(rest);
+            merger.mergeCollapse();
+        }
+        merger.mergeForceCollapse();
+        metrics.recordDepth(merger.maxStackSize);
+        metrics.addComparisons(merger.comparisons);
+        return merger.runHead[0];
+    }
+
+    // Cuts the run that starts at rest off the list, pushes it and returns what is left.
+    private ListNode pushNextRun(ListNode rest) {
+        ListNode head = rest;
+        ListNode tail = rest;
+        int length = 1;
+        rest = rest.next;
+        long comparisons = 0;
+
+        if (rest != null && rest.value < tail.value) {
+            // Strictly descending: reverse it by prepending each node.
+            comparisons++;
+            tail.next = null;
+            while (rest != null && rest.value < head.value) {
+                comparisons++;
+                ListNode next = rest.next;
+                rest.next = head;
+                head = rest;
+                rest = next;
+                length++;
+            }
+        } else {
+            while (rest != null && rest.value >= tail.value) {
+                comparisons++;
+                tail = rest;
+                rest = rest.next;
+                length++;
+            }
+            tail.next = null;
+        }
+        if (rest != null) {
+            comparisons++;
+        }
+
+        // Extend a short run by inserting the following nodes into it.
+        while (length < MIN_RUN && rest != null) {
+            ListNode node = rest;
+            rest = rest.next;
+            comparisons++;
+            if (node.value >= tail.value) {
+                tail.next = node;
+                tail = node;
+                node.next = null;
+            } else {
+                comparisons++;
+                if (node.value < head.value) {
+                    node.next = head;
+                    head = node;
+                } else {
+                    // Insert after the last node not greater than it, keeping equal keys stable.
+                    ListNode previous = head;
+                    while (previous.next.value <= node.value) {
+                        comparisons++;
+                        previous = previous.next;
+                    }
+                    comparisons++;
+                    node.next = previous.next;
+                    previous.next = node;
+                }
+            }
+            length++;
+        }
+
+        runHead[stackSize] = head;
+        runTail[stackSize] = tail;
+        runLen[stackSize] = length;
+        stackSize++;
+        maxStackSize = Math.max(maxStackSize, stackSize);
+        this.comparisons += comparisons;
+        return rest;
+    }
+
+    // Merges runs until runLen[i - 2] > runLen[i - 1] + runLen[i] and runLen[i - 1] > runLen[i].
+    private void mergeCollapse() {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if (n > 0 && runLen[n - 1] <= runLen[n] + runLen[n + 1]
+                    || n > 1 && runLen[n - 2] <= runLen[n] + runLen[n - 1]) {
+                if (runLen[n - 1] < runLen[n + 1]) {
+                    n--;
+                }
+            } else if (runLen[n] > runLen[n + 1]) {
+                break;
+            }
+            mergeAt(n);
+        }
+    }
+
+    private void mergeForceCollapse() {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if (n > 0 && runLen[n - 1] < runLen[n + 1]) {
+                n--;
+            }
+            mergeAt(n);
+        }
+    }
+
+    // Merges the runs at stack positions i and i + 1 into position i.
+    private void mergeAt(int i) {
+        ListNode a = runHead[i];
+        ListNode aTail = runTail[i];
+        ListNode b = runHead[i + 1];
+        ListNode bTail = runTail[i + 1];
+        runLen[i] += runLen[i + 1];
+        if (i == stackSize - 3) {
+            runHead[i + 1] = runHead[i + 2];
+            runTail[i + 1] = runTail[i + 2];
+            runLen[i + 1] = runLen[i + 2];
+        }
+        runHead[stackSize - 1] = null;
+        runTail[stackSize - 1] = null;
+        stackSize--;
+
+        long comparisons = 1;
+        if (aTail.value <= b.value) {
+            // Already in order.
+            aTail.next = b;
+            runTail[i] = bTail;
+            this.comparisons += comparisons;
+            return;
+        }
+        comparisons++;
+        if (bTail.value < a.value) {
+            // Completely out of order; b goes first as a whole.
+            bTail.next = a;
+            runHead[i] = b;
+            this.comparisons += comparisons;
+            return;
+        }
+
+        ListNode head = null;
+        ListNode tail = null;
+        while (a != null && b != null) {
+            ListNode first;
+            ListNode last;
+            comparisons++;
+            if (b.value < a.value) {
+                // Take every b node smaller than a's head in one stretch.
+                first = b;
+                last = b;
+                while (last.next != null && last.next.value < a.value) {
+                    comparisons++;
+                    last = last.next;
+                }
+                if (last.next != null) {
+                    comparisons++;
+                }
+                b = last.next;
+            } else {
+                // Take every a node not greater than b's head; a wins ties for stability.
+                first = a;
+                last = a;
+                while (last.next != null && last.next.value <= b.value) {
+                    comparisons++;
+                    last = last.next;
+                }
+                if (last.next != null) {
+                    comparisons++;
+                }
+                a = last.next;
+            }
+            if (head == null) {
+                head = first;
+            } else {
+                tail.next = first;
+            }
+            tail = last;
+        }
+        if (a != null) {
+            tail.next = a;
+            runTail[i] = aTail;
+        } else {
+            tail.next = b;
+            runTail[i] = bTail;
+        }
+        runHead[i] = head;
+        this.comparisons += comparisons;
+    }
+}
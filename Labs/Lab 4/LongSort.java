@@ -0,0 +1,180 @@
+// Sorts for long[] keys such as timestamps. These are copies of the int routines in
+// QuicksortAdvanced specialized for long, so no value is ever boxed:
+//   introsort - median-of-three quicksort with a heapsort fallback; not stable
+//   mergeSort - top-down merge sort with one scratch array; stable
+// Both finish small ranges with insertion sort.
+public class LongSort {
+    // Ranges this small are left to insertion sort.
+    static final int INSERTION_CUTOFF = 16;
+
+    public static void introsort(long[] data, int low, int high) {
+        introsort(data, low, high, SortMetrics.NONE);
+    }
+
+    public static void introsort(long[] data, int low, int high, SortMetrics metrics) {
+        if (low >= high) {
+            return;
+        }
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(high - low + 1));
+        introsort(data, low, high, depthLimit, metrics, 1);
+    }
+
+    private static void introsort(long[] data, int low, int high, int depthLimit, SortMetrics metrics, int depth) {
+        while (high - low + 1 > INSERTION_CUTOFF) {
+            if (depth > depthLimit) {
+                heapSort(data, low, high, metrics);
+                return;
+            }
+            metrics.recordDepth(depth);
+            int pivotIndex = partition(data, low, high, metrics);
+            depth++;
+            if (pivotIndex - low < high - pivotIndex) {
+                introsort(data, low, pivotIndex - 1, depthLimit, metrics, depth);
+                low = pivotIndex + 1;
+            } else {
+                introsort(data, pivotIndex + 1, high, depthLimit, metrics, depth);
+                high = pivotIndex - 1;
+            }
+        }
+        insertionSort(data, low, high, metrics);
+    }
+
+    // Median-of-three pivot, then a Hoare partition whose scans stop on keys equal to the
+    // pivot, so runs of duplicates are split evenly instead of going quadratic. After the
+    // median of three, data[high] >= pivot and data[low] == pivot act as sentinels.
+    static int partition(long[] data, int low, int high, SortMetrics metrics) {
+        int mid = (low + high) >>> 1;
+        if (data[low] > data[mid]) swap(data, low, mid);
+        if (data[low] > data[high]) swap(data, low, high);
+        if (data[mid] > data[high]) swap(data, mid, high);
+        swap(data, mid, low);
+        long pivot = data[low];
+        int i = low;
+        int j = high + 1;
+        long comparisons = 3;
+        long exchanges = 2;
+        while (true) {
+            do {
+                i++;
+                comparisons++;
+            } while (data[i] < pivot);
+            do {
+                j--;
+                comparisons++;
+            } while (pivot < data[j]);
+            if (i >= j) {
+                break;
+            }
+            swap(data, i, j);
+            exchanges++;
+        }
+        swap(data, low, j);
+        metrics.addComparisons(comparisons);
+        metrics.addExchanges(exchanges);
+        return j;
+    }
+
+    public static void insertionSort(long[] data, int low, int high, SortMetrics metrics) {
+        long comparisons = 0;
+        long exchanges = 0;
+        for (int i = low + 1; i <= high; i++) {
+            long key = data[i];
+            int j = i - 1;
+            while (j >= low && data[j] > key) {
+                data[j + 1] = data[j];
+                j--;
+                comparisons++;
+                exchanges++;
+            }
+            if (j >= low) {
+                comparisons++;
+            }
+            data[j + 1] = key;
+        }
+        metrics.addComparisons(comparisons);
+        metrics.addExchanges(exchanges);
+    }
+
+    public static void heapSort(long[] data, int low, int high, SortMetrics metrics) {
+        int n = high - low + 1;
+        long[] counts = new long[2];
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(data, low, i, n, counts);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(data, low, low + end);
+            counts[1]++;
+            siftDown(data, low, 0, end, counts);
+        }
+        metrics.addComparisons(counts[0]);
+        metrics.addExchanges(counts[1]);
+    }
+
+    private static void siftDown(long[] data, int low, int i, int size, long[] counts) {
+        long value = data[low + i];
+        int child;
+        while ((child = 2 * i + 1) < size) {
+            if (child + 1 < size) {
+                counts[0]++;
+                if (data[low + child + 1] > data[low + child]) {
+                    child++;
+                }
+            }
+            counts[0]++;
+            if (data[low + child] <= value) {
+                break;
+            }
+            data[low + i] = data[low + child];
+            counts[1]++;
+            i = child;
+        }
+        data[low + i] = value;
+    }
+
+    public static void mergeSort(long[] data, int low, int high) {
+        mergeSort(data, low, high, SortMetrics.NONE);
+    }
+
+    // Stable. Halves that are already in order are not merged, so sorted input is linear.
+    public static void mergeSort(long[] data, int low, int high, SortMetrics metrics) {
+        if (low >= high) {
+            return;
+        }
+        mergeSort(data, new long[high - low + 1], low, high, metrics, 1);
+    }
+
+    private static void mergeSort(long[] data, long[] scratch, int low, int high, SortMetrics metrics, int depth) {
+        if (high - low + 1 <= INSERTION_CUTOFF) {
+            insertionSort(data, low, high, metrics);
+            return;
+        }
+        metrics.recordDepth(depth);
+        int mid = (low + high) >>> 1;
+        mergeSort(data, scratch, low, mid, metrics, depth + 1);
+        mergeSort(data, scratch, mid + 1, high, metrics, depth + 1);
+        metrics.addComparisons(1);
+        if (data[mid] <= data[mid + 1]) {
+            return;
+        }
+        // Only the left half is copied out; the right half is merged from where it is.
+        int leftLength = mid - low + 1;
+        System.arraycopy(data, low, scratch, 0, leftLength);
+        int i = 0;
+        int j = mid + 1;
+        int k = low;
+        long comparisons = 0;
+        while (i < leftLength && j <= high) {
+            comparisons++;
+            data[k++] = data[j] < scratch[i] ? data[j++] : scratch[i++];
+        }
+        System.arraycopy(scratch, i, data, k, leftLength - i);
+        metrics.addComparisons(comparisons);
+        metrics.addExchanges(leftLength + (j - low));
+    }
+
+    public static void swap(long[] data, int i, int j) {
+        long temp = data[i];
+        data[i] = data[j];
+        data[j] = temp;
+    }
+}
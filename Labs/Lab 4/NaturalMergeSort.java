@@ -1,26 +1,156 @@
 import java.io.*;
 
-class ListNode {
-    int value;
-    ListNode next;
-    ListNode(int x) { value = x; }
-}
-
 public class NaturalMergeSort {
+    // Integers pulled from the file per read while building a list.
+    private static final int LOAD_BUFFER_SIZE = 8192;
 
+    // Usage: java NaturalMergeSort [inputFile] [outputFile] [runs|halving|bottomup|packed|offheap|array]
+    //   runs     - run-detecting natural merge sort on the linked list (default)
+    //   halving  - the original top-down merge sort that splits the list in half
+    //   bottomup - iterative bottom-up merge sort on the linked list
+    //   packed   - run-detecting natural merge sort on an IntLinkedList
+    //   offheap  - the same with the IntLinkedList stored outside the Java heap
+    //   array    - run-detecting natural merge sort on an int[]
     public static void main(String[] args) {
-        // Example usage
-        ListNode head = loadLinkedListData("input.txt");
-        head = naturalMergeSort(head);
-        saveLinkedListData("output_merge.txt", head);
+        String inputFile = args.length > 0 ? args[0] : "input.txt";
+        String outputFile = args.length > 1 ? args[1] : "output_merge.txt";
+        String mode = args.length > 2 ? args[2] : "runs";
+
+        switch (mode) {
+            case "runs":
+                saveLinkedListData(outputFile, naturalRunMergeSort(loadLinkedListData(inputFile)));
+                break;
+            case "halving":
+                saveLinkedListData(outputFile, naturalMergeSort(loadLinkedListData(inputFile)));
+                break;
+            case "bottomup":
+                saveLinkedListData(outputFile, bottomUpMergeSort(loadLinkedListData(inputFile)));
+                break;
+            case "packed":
+            case "offheap":
+                IntLinkedList list = loadIntLinkedList(inputFile, mode.equals("offheap"));
+                naturalRunMergeSort(list);
+                saveLinkedListData(outputFile, list);
+                break;
+            case "array":
+                int[] data = Quicksort.loadData(inputFile);
+                naturalRunMergeSort(data, 0, data.length - 1);
+                QuicksortAdvanced.saveData(outputFile, data);
+                break;
+            default:
+                System.out.println("Unknown mode: " + mode);
+        }
+    }
+
+    public static ListNode naturalRunMergeSort(ListNode head) {
+        return naturalRunMergeSort(head, SortMetrics.NONE);
+    }
+
+    // Merges the ascending runs already present in the list (descending runs are reversed),
+    // so sorted and nearly sorted lists take close to linear time. Stable.
+    public static ListNode naturalRunMergeSort(ListNode head, SortMetrics metrics) {
+        return ListRunMerger.sort(head, metrics);
+    }
+
+    public static void naturalRunMergeSort(IntLinkedList list) {
+        naturalRunMergeSort(list, SortMetrics.NONE);
+    }
+
+    // The same for a packed IntLinkedList. Only the next links change; values stay in place.
+    public static void naturalRunMergeSort(IntLinkedList list, SortMetrics metrics) {
+        IntListRunMerger.sort(list, metrics);
+    }
+
+    public static void naturalRunMergeSort(int[] data, int low, int high) {
+        naturalRunMergeSort(data, low, high, SortMetrics.NONE);
+    }
+
+    // The same for an int[] range, with galloping merges. Uses at most n/2 extra ints.
+    public static void naturalRunMergeSort(int[] data, int low, int high, SortMetrics metrics) {
+        ArrayRunMerger.sort(data, low, high, metrics);
     }
 
     public static ListNode naturalMergeSort(ListNode head) {
+        return naturalMergeSort(head, SortMetrics.NONE);
+    }
+
+    public static ListNode naturalMergeSort(ListNode head, SortMetrics metrics) {
+        return naturalMergeSort(head, metrics, 1);
+    }
+
+    private static ListNode naturalMergeSort(ListNode head, SortMetrics metrics, int depth) {
         if (head == null || head.next == null) return head;
+        metrics.recordDepth(depth);
         ListNode left = head, right = split(head);
-        left = naturalMergeSort(left);
-        right = naturalMergeSort(right);
-        return merge(left, right);
+        left = naturalMergeSort(left, metrics, depth + 1);
+        right = naturalMergeSort(right, metrics, depth + 1);
+        return merge(left, right, metrics);
+    }
+
+    public static ListNode bottomUpMergeSort(ListNode head) {
+        return bottomUpMergeSort(head, SortMetrics.NONE);
+    }
+
+    // Iterative merge sort. Nodes are taken off the list one at a time and carried through an
+    // array of pending sorted sublists, where slot i holds a list of 2^i nodes, like adding
+    // one to a binary counter. Every merge is between equal-sized lists built from nodes that
+    // were visited recently, so it keeps the cache behaviour of the recursive version without
+    // its recursion, its split walks or its per-merge dummy node. Stable.
+    public static ListNode bottomUpMergeSort(ListNode head, SortMetrics metrics) {
+        // Slot i fills only after 2^i nodes, so 64 slots cover any list.
+        ListNode[] pending = new ListNode[64];
+        int used = 0;
+        long[] comparisons = new long[1];
+        while (head != null) {
+            ListNode carry = head;
+            head = head.next;
+            carry.next = null;
+            int slot = 0;
+            // Earlier nodes sit in the pending list, so it goes first for stability.
+            while (slot < used && pending[slot] != null) {
+                carry = mergeStable(pending[slot], carry, comparisons);
+                pending[slot] = null;
+                slot++;
+            }
+            pending[slot] = carry;
+            used = Math.max(used, slot + 1);
+        }
+        ListNode result = null;
+        for (int slot = 0; slot < used; slot++) {
+            if (pending[slot] != null) {
+                result = result == null ? pending[slot] : mergeStable(pending[slot], result, comparisons);
+            }
+        }
+        metrics.addComparisons(comparisons[0]);
+        return result;
+    }
+
+    // Merges two non-empty sorted lists, taking from first on ties. Allocates nothing.
+    private static ListNode mergeStable(ListNode first, ListNode second, long[] comparisons) {
+        long count = 1;
+        ListNode head;
+        if (second.value < first.value) {
+            head = second;
+            second = second.next;
+        } else {
+            head = first;
+            first = first.next;
+        }
+        ListNode tail = head;
+        while (first != null && second != null) {
+            count++;
+            if (second.value < first.value) {
+                tail.next = second;
+                second = second.next;
+            } else {
+                tail.next = first;
+                first = first.next;
+            }
+            tail = tail.next;
+        }
+        tail.next = first != null ? first : second;
+        comparisons[0] += count;
+        return head;
     }
 
     private static ListNode split(ListNode head) {
@@ -34,10 +164,13 @@ public class NaturalMergeSort {
         return middle;
     }
 
-    private static ListNode merge(ListNode l1, ListNode l2) {
+    // Merging relinks nodes instead of swapping values, so only comparisons are reported.
+    private static ListNode merge(ListNode l1, ListNode l2, SortMetrics metrics) {
         ListNode dummy = new ListNode(0);
         ListNode current = dummy;
+        long comparisons = 0;
         while (l1 != null && l2 != null) {
+            comparisons++;
             if (l1.value < l2.value) {
                 current.next = l1;
                 l1 = l1.next;
@@ -48,17 +181,21 @@ public class NaturalMergeSort {
             current = current.next;
         }
         current.next = (l1 != null) ? l1 : l2;
+        metrics.addComparisons(comparisons);
         return dummy.next;
     }
 
     public static ListNode loadLinkedListData(String fileName) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-            String line;
+        try (IntFileReader reader = new IntFileReader(fileName)) {
+            int[] buffer = new int[LOAD_BUFFER_SIZE];
             ListNode dummy = new ListNode(0);
             ListNode current = dummy;
-            while ((line = reader.readLine()) != null) {
-                current.next = new ListNode(Integer.parseInt(line));
-                current = current.next;
+            int count;
+            while ((count = reader.read(buffer, 0, buffer.length)) > 0) {
+                for (int i = 0; i < count; i++) {
+                    current.next = new ListNode(buffer[i]);
+                    current = current.next;
+                }
             }
             return dummy.next;
         } catch (IOException e) {
@@ -67,12 +204,37 @@ public class NaturalMergeSort {
         }
     }
 
+    public static IntLinkedList loadIntLinkedList(String fileName, boolean offHeap) {
+        IntLinkedList list = new IntLinkedList(1024, offHeap);
+        try (IntFileReader reader = new IntFileReader(fileName)) {
+            int[] buffer = new int[LOAD_BUFFER_SIZE];
+            int count;
+            while ((count = reader.read(buffer, 0, buffer.length)) > 0) {
+                for (int i = 0; i < count; i++) {
+                    list.add(buffer[i]);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    public static void saveLinkedListData(String fileName, IntLinkedList list) {
+        try (IntFileWriter writer = new IntFileWriter(fileName)) {
+            for (int node = list.head(); node != IntLinkedList.NIL; node = list.next(node)) {
+                writer.write(list.value(node));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     public static void saveLinkedListData(String fileName, ListNode head) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
+        try (IntFileWriter writer = new IntFileWriter(fileName)) {
             ListNode current = head;
             while (current != null) {
-                writer.write(Integer.toString(current.value));
-                writer.newLine();
+                writer.write(current.value);
                 current = current.next;
             }
         } catch (IOException e) {
@@ -0,0 +1,191 @@
+import java.util.Comparator;
+
+// Sorts for arrays of objects ordered by a Comparator, with the same structure as LongSort:
+//   introsort - median-of-three quicksort with a heapsort fallback; not stable
+//   mergeSort - top-down merge sort with one scratch array; stable, so records that compare
+//               equal keep their input order
+public class ObjectSort {
+    // Ranges this small are left to insertion sort.
+    static final int INSERTION_CUTOFF = 16;
+
+    public static <T> void introsort(T[] data, int low, int high, Comparator<? super T> comparator) {
+        introsort(data, low, high, comparator, SortMetrics.NONE);
+    }
+
+    public static <T> void introsort(T[] data, int low, int high, Comparator<? super T> comparator,
+                                     SortMetrics metrics) {
+        if (low >= high) {
+            return;
+        }
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(high - low + 1));
+        introsort(data, low, high, comparator, depthLimit, metrics, 1);
+    }
+
+    private static <T> void introsort(T[] data, int low, int high, Comparator<? super T> comparator,
+                                      int depthLimit, SortMetrics metrics, int depth) {
+        while (high - low + 1 > INSERTION_CUTOFF) {
+            if (depth > depthLimit) {
+                heapSort(data, low, high, comparator, metrics);
+                return;
+            }
+            metrics.recordDepth(depth);
+            int pivotIndex = partition(data, low, high, comparator, metrics);
+            depth++;
+            if (pivotIndex - low < high - pivotIndex) {
+                introsort(data, low, pivotIndex - 1, comparator, depthLimit, metrics, depth);
+                low = pivotIndex + 1;
+            } else {
+                introsort(data, pivotIndex + 1, high, comparator, depthLimit, metrics, depth);
+                high = pivotIndex - 1;
+            }
+        }
+        insertionSort(data, low, high, comparator, metrics);
+    }
+
+    // Median-of-three pivot, then a Hoare partition whose scans stop on elements equal to
+    // the pivot. After the median of three, data[high] >= pivot and data[low] == pivot act
+    // as sentinels.
+    static <T> int partition(T[] data, int low, int high, Comparator<? super T> comparator,
+                             SortMetrics metrics) {
+        int mid = (low + high) >>> 1;
+        if (comparator.compare(data[low], data[mid]) > 0) swap(data, low, mid);
+        if (comparator.compare(data[low], data[high]) > 0) swap(data, low, high);
+        if (comparator.compare(data[mid], data[high]) > 0) swap(data, mid, high);
+        swap(data, mid, low);
+        T pivot = data[low];
+        int i = low;
+        int j = high + 1;
+        long comparisons = 3;
+        long exchanges = 2;
+        while (true) {
+            do {
+                i++;
+                comparisons++;
+            } while (comparator.compare(data[i], pivot) < 0);
+            do {
+                j--;
+                comparisons++;
+            } while (comparator.compare(pivot, data[j]) < 0);
+            if (i >= j) {
+                break;
+            }
+            swap(data, i, j);
+            exchanges++;
+        }
+        swap(data, low, j);
+        metrics.addComparisons(comparisons);
+        metrics.addExchanges(exchanges);
+        return j;
+    }
+
+    public static <T> void insertionSort(T[] data, int low, int high, Comparator<? super T> comparator,
+                                         SortMetrics metrics) {
+        long comparisons = 0;
+        long exchanges = 0;
+        for (int i = low + 1; i <= high; i++) {
+            T key = data[i];
+            int j = i - 1;
+            while (j >= low && comparator.compare(data[j], key) > 0) {
+                data[j + 1] = data[j];
+                j--;
+                comparisons++;
+                exchanges++;
+            }
+            if (j >= low) {
+                comparisons++;
+            }
+            data[j + 1] = key;
+        }
+        metrics.addComparisons(comparisons);
+        metrics.addExchanges(exchanges);
+    }
+
+    public static <T> void heapSort(T[] data, int low, int high, Comparator<? super T> comparator,
+                                    SortMetrics metrics) {
+        int n = high - low + 1;
+        long[] counts = new long[2];
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(data, low, i, n, comparator, counts);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(data, low, low + end);
+            counts[1]++;
+            siftDown(data, low, 0, end, comparator, counts);
+        }
+        metrics.addComparisons(counts[0]);
+        metrics.addExchanges(counts[1]);
+    }
+
+    private static <T> void siftDown(T[] data, int low, int i, int size, Comparator<? super T> comparator,
+                                     long[] counts) {
+        T value = data[low + i];
+        int child;
+        while ((child = 2 * i + 1) < size) {
+            if (child + 1 < size) {
+                counts[0]++;
+                if (comparator.compare(data[low + child + 1], data[low + child]) > 0) {
+                    child++;
+                }
+            }
+            counts[0]++;
+            if (comparator.compare(data[low + child], value) <= 0) {
+                break;
+            }
+            data[low + i] = data[low + child];
+            counts[1]++;
+            i = child;
+        }
+        data[low + i] = value;
+    }
+
+    public static <T> void mergeSort(T[] data, int low, int high, Comparator<? super T> comparator) {
+        mergeSort(data, low, high, comparator, SortMetrics.NONE);
+    }
+
+    // Stable. Halves that are already in order are not merged, so sorted input is linear.
+    public static <T> void mergeSort(T[] data, int low, int high, Comparator<? super T> comparator,
+                                     SortMetrics metrics) {
+        if (low >= high) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        T[] scratch = (T[]) new Object[high - low + 1];
+        mergeSort(data, scratch, low, high, comparator, metrics, 1);
+    }
+
+    private static <T> void mergeSort(T[] data, T[] scratch, int low, int high, Comparator<? super T> comparator,
+                                      SortMetrics metrics, int depth) {
+        if (high - low + 1 <= INSERTION_CUTOFF) {
+            insertionSort(data, low, high, comparator, metrics);
+            return;
+        }
+        metrics.recordDepth(depth);
+        int mid = (low + high) >>> 1;
+        mergeSort(data, scratch, low, mid, comparator, metrics, depth + 1);
+        mergeSort(data, scratch, mid + 1, high, comparator, metrics, depth + 1);
+        metrics.addComparisons(1);
+        if (comparator.compare(data[mid], data[mid + 1]) <= 0) {
+            return;
+        }
+        // Only the left half is copied out; the right half is merged from where it is.
+        int leftLength = mid - low + 1;
+        System.arraycopy(data, low, scratch, 0, leftLength);
+        int i = 0;
+        int j = mid + 1;
+        int k = low;
+        long comparisons = 0;
+        while (i < leftLength && j <= high) {
+            comparisons++;
+            data[k++] = comparator.compare(data[j], scratch[i]) < 0 ? data[j++] : scratch[i++];
+        }
+        System.arraycopy(scratch, i, data, k, leftLength - i);
+        metrics.addComparisons(comparisons);
+        metrics.addExchanges(leftLength + (j - low));
+    }
+
+    public static <T> void swap(T[] data, int i, int j) {
+        T temp = data[i];
+        data[i] = data[j];
+        data[j] = temp;
+    }
+}
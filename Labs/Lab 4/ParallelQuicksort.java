@@ -0,0 +1,124 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ParallelQuicksort {
+    // Subranges larger than this are handed to a separate fork/join task.
+    public static final int DEFAULT_PARALLEL_CUTOFF = 8192;
+    // Subranges of this size or smaller are finished with insertion sort.
+    public static final int INSERTION_CUTOFF = 16;
+
+    // The main method where the program starts execution.
+    public static void main(String[] args) {
+        // Check if the input filename is provided as a command-line argument.
+        if (args.length == 0) {
+            System.out.println("Usage: java ParallelQuicksort <inputFile> [outputFile] [first|median] [cutoff]");
+            return;
+        }
+
+        String inputFilename = args[0];
+        String outputFilename = args.length > 1 ? args[1] : "output.txt";
+        boolean medianPivot = args.length > 2 && args[2].equals("median");
+        int cutoff = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_PARALLEL_CUTOFF;
+        CountingSortMetrics metrics = new CountingSortMetrics();
+
+        long start = System.nanoTime();
+        int[] data = Quicksort.loadData(inputFilename);
+        metrics.addPhaseTime(SortMetrics.Phase.LOAD, System.nanoTime() - start);
+        if (data == null || data.length == 0) {
+            System.out.println("No valid data found in the file.");
+            return;
+        }
+
+        start = System.nanoTime();
+        parallelQuicksort(data, 0, data.length - 1, medianPivot, cutoff, ForkJoinPool.commonPool(), metrics);
+        metrics.addPhaseTime(SortMetrics.Phase.SORT, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        Quicksort.saveData(outputFilename, data);
+        metrics.addPhaseTime(SortMetrics.Phase.SAVE, System.nanoTime() - start);
+
+        // Print the comparisons and exchanges made by all threads.
+        metrics.print(System.out);
+    }
+
+    // Sorts data[low..high] on the common pool using the default cutoff.
+    public static void parallelQuicksort(int[] data, int low, int high, boolean medianPivot) {
+        parallelQuicksort(data, low, high, medianPivot, DEFAULT_PARALLEL_CUTOFF,
+                ForkJoinPool.commonPool(), SortMetrics.NONE);
+    }
+
+    // Sorts data[low..high] on the given pool. Ranges of cutoff elements or fewer are not forked.
+    // The metrics object is shared by all tasks, so it must be thread-safe.
+    public static void parallelQuicksort(int[] data, int low, int high, boolean medianPivot,
+                                         int cutoff, ForkJoinPool pool, SortMetrics metrics) {
+        if (low >= high) {
+            return;
+        }
+        pool.invoke(new SortTask(data, low, high, medianPivot, Math.max(cutoff, INSERTION_CUTOFF), metrics, 1));
+    }
+
+    // Sorts one subrange with the partition routines of Quicksort and QuicksortAdvanced.
+    private static class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] data;
+        private final int low;
+        private final int high;
+        private final boolean medianPivot;
+        private final int cutoff;
+        private final SortMetrics metrics;
+        private final int depth;
+        // Links the tasks forked by one sort call so they can be joined together.
+        private SortTask next;
+
+        SortTask(int[] data, int low, int high, boolean medianPivot, int cutoff, SortMetrics metrics, int depth) {
+            this.data = data;
+            this.low = low;
+            this.high = high;
+            this.medianPivot = medianPivot;
+            this.cutoff = cutoff;
+            this.metrics = metrics;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            sort(low, high, depth);
+        }
+
+        // Handles the smaller side of each partition first (forked when large enough) and
+        // loops on the larger side, so the stack stays shallow even on sorted input.
+        private void sort(int low, int high, int depth) {
+            SortTask forked = null;
+            while (high - low + 1 > INSERTION_CUTOFF) {
+                metrics.recordDepth(depth);
+                int pivotIndex = medianPivot
+                        ? QuicksortAdvanced.partitionMedianPivot(data, low, high, metrics)
+                        : Quicksort.partitionFirstPivot(data, low, high, metrics);
+                int smallLow, smallHigh;
+                if (pivotIndex - low < high - pivotIndex) {
+                    smallLow = low;
+                    smallHigh = pivotIndex - 1;
+                    low = pivotIndex + 1;
+                } else {
+                    smallLow = pivotIndex + 1;
+                    smallHigh = high;
+                    high = pivotIndex - 1;
+                }
+                depth++;
+                if (smallHigh - smallLow + 1 > cutoff) {
+                    SortTask task = new SortTask(data, smallLow, smallHigh, medianPivot, cutoff, metrics, depth);
+                    task.next = forked;
+                    forked = task;
+                    task.fork();
+                } else {
+                    sort(smallLow, smallHigh, depth);
+                }
+            }
+            QuicksortAdvanced.insertionSort(data, low, high, metrics);
+            for (SortTask task = forked; task != null; task = task.next) {
+                task.join();
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+// How QuicksortAdvanced.quicksort splits each range.
+public enum PartitionStrategy {
+    // Two-way partition around the first element (the original Quicksort scheme).
+    FIRST_PIVOT,
+    // Two-way partition around the median of the first, middle and last elements.
+    MEDIAN_OF_THREE,
+    // Bentley-McIlroy partition into < pivot, == pivot and > pivot: keys equal to the pivot
+    // are swapped to both ends during the scan and swapped back to the middle afterwards.
+    // They are finished in one pass, so duplicate-heavy input costs O(n log k).
+    THREE_WAY,
+    // Yaroslavskiy's partition into < p, p..q and > q around two pivots.
+    DUAL_PIVOT,
+    // Median-of-three pivot with BlockPartition's branch-free block scan. Also accepted by
+    // quicksortMedianPivot and quicksortInsertionThreshold.
+    BLOCK
+}
@@ -1,10 +1,6 @@
 import java.io.*;
 
 public class Quicksort {
-    // These variables track the number of comparisons and exchanges made during sorting.
-    private static int comparisons = 0;
-    private static int exchanges = 0;
-
     // The main method where the program starts execution.
     public static void main(String[] args) {
         // Check if the input filename is provided as a command-line argument.
@@ -17,8 +13,13 @@ public class Quicksort {
         String inputFilename = args[0];
         String outputFilename = args.length > 1 ? args[1] : "output.txt";
 
+        // Tracks comparisons, exchanges, recursion depth and time spent in each phase.
+        CountingSortMetrics metrics = new CountingSortMetrics();
+
         // Load the data from the input file into an array.
+        long start = System.nanoTime();
         int[] data = loadData(inputFilename);
+        metrics.addPhaseTime(SortMetrics.Phase.LOAD, System.nanoTime() - start);
         
         // If no valid data was found, print a message and exit.
         if (data == null || data.length == 0) {
@@ -27,37 +28,48 @@ public class Quicksort {
         }
 
         // Perform the Quicksort algorithm using the first element as the pivot.
-        quicksortFirstPivot(data, 0, data.length - 1);
+        start = System.nanoTime();
+        quicksortFirstPivot(data, 0, data.length - 1, metrics);
+        metrics.addPhaseTime(SortMetrics.Phase.SORT, System.nanoTime() - start);
         
         // Save the sorted data to the output file.
+        start = System.nanoTime();
         saveData(outputFilename, data);
+        metrics.addPhaseTime(SortMetrics.Phase.SAVE, System.nanoTime() - start);
 
         // Print the number of comparisons and exchanges made during sorting.
-        System.out.println("Comparisons: " + comparisons);
-        System.out.println("Exchanges: " + exchanges);
-
-        // For files of size 50, ensure the sorted data is saved.
-        if (data.length == 50) {
-            saveData(outputFilename, data);  // Save sorted data for size 50
-        }
+        metrics.print(System.out);
     }
 
     // Quicksort method that sorts the array using the first element as the pivot.
     public static void quicksortFirstPivot(int[] data, int low, int high) {
+        quicksortFirstPivot(data, low, high, SortMetrics.NONE);
+    }
+
+    // Same as above, reporting comparisons, exchanges and recursion depth to metrics.
+    public static void quicksortFirstPivot(int[] data, int low, int high, SortMetrics metrics) {
+        quicksortFirstPivot(data, low, high, metrics, 1);
+    }
+
+    private static void quicksortFirstPivot(int[] data, int low, int high, SortMetrics metrics, int depth) {
         if (low < high) {
+            metrics.recordDepth(depth);
             // Partition the array and get the pivot index.
-            int pivotIndex = partitionFirstPivot(data, low, high);
+            int pivotIndex = partitionFirstPivot(data, low, high, metrics);
             // Recursively sort the left and right sub-arrays.
-            quicksortFirstPivot(data, low, pivotIndex - 1);
-            quicksortFirstPivot(data, pivotIndex + 1, high);
+            quicksortFirstPivot(data, low, pivotIndex - 1, metrics, depth + 1);
+            quicksortFirstPivot(data, pivotIndex + 1, high, metrics, depth + 1);
         }
     }
 
     // Partition method that organizes the array based on the pivot.
-    private static int partitionFirstPivot(int[] data, int low, int high) {
+    static int partitionFirstPivot(int[] data, int low, int high, SortMetrics metrics) {
         int pivot = data[low];  // Choose the first element as the pivot.
         int left = low + 1;
         int right = high;
+        // Counted locally and reported once, so the loops stay free of calls.
+        long comparisons = 0;
+        long exchanges = 0;
 
         // Continue until the left and right pointers cross.
         while (true) {
@@ -82,6 +94,8 @@ public class Quicksort {
         // Swap the pivot element with the element at the right pointer.
         swap(data, low, right);
         exchanges++;  // Increment the exchange counter.
+        metrics.addComparisons(comparisons);
+        metrics.addExchanges(exchanges);
         return right;  // Return the pivot index.
     }
 
@@ -95,33 +109,9 @@ public class Quicksort {
     // Method to load data from the input file into an integer array.
     public static int[] loadData(String fileName) {
         int[] data = null;
-        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-            String line;
-            int count = 0;
-
-            // First pass: count the total number of integers in the file.
-            while ((line = reader.readLine()) != null) {
-                if (!line.trim().isEmpty()) {  // Skip empty lines.
-                    count += line.trim().split("\\s+").length;
-                }
-            }
-
-            // Initialize the array with the correct size based on the count.
-            data = new int[count];
-            reader.close();
-
-            // Second pass: fill the array with the integers from the file.
-            try (BufferedReader reader2 = new BufferedReader(new FileReader(fileName))) {
-                int index = 0;
-                while ((line = reader2.readLine()) != null) {
-                    if (!line.trim().isEmpty()) {  // Skip empty lines.
-                        String[] numbers = line.trim().split("\\s+");
-                        for (String num : numbers) {
-                            data[index++] = Integer.parseInt(num);
-                        }
-                    }
-                }
-            }
+        try {
+            // One pass over the mapped file; .bin files are read as raw binary ints.
+            data = IntFileReader.readAll(fileName);
         } catch (IOException e) {
             e.printStackTrace();
         } catch (NumberFormatException e) {
@@ -133,12 +123,10 @@ public class Quicksort {
     }
 
     // Method to save the sorted data to the output file.
+    // One integer per line, or raw binary ints when the file name ends in .bin.
     public static void saveData(String fileName, int[] data) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
-            for (int value : data) {
-                writer.write(Integer.toString(value));
-                writer.newLine();
-            }
+        try {
+            IntFileWriter.writeAll(fileName, data);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -1,71 +1,589 @@
 import java.io.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class QuicksortAdvanced {
+    // Ranges this small are left to insertion sort by introsort.
+    static final int INTROSORT_INSERTION_CUTOFF = 16;
+    // autoSort uses introsort below this size; radix sort's fixed passes do not pay off.
+    static final int AUTO_RADIX_MIN_SIZE = 4096;
+    // autoSort uses the parallel radix sort from this size when there is more than one core.
+    static final int AUTO_PARALLEL_MIN_SIZE = 1 << 20;
+
+    // Usage: java QuicksortAdvanced [inputFile] [outputFile]
+    //            [median|threshold|introsort|threeway|dualpivot|block|radix|msd|auto] [threshold] [final]
+    // Without a threshold, threshold mode uses the calibrated value from SortThresholds.DEFAULT_FILE,
+    // or the default when ThresholdCalibrator has not been run. "final" finishes with one
+    // insertion pass and may follow the mode directly.
     public static void main(String[] args) {
-        int[] data = loadData("input.txt");
-        quicksortMedianPivot(data, 0, data.length - 1);
-        saveData("output_median.txt", data);
+        String inputFile = args.length > 0 ? args[0] : "input.txt";
+        String outputFile = args.length > 1 ? args[1] : "output_median.txt";
+        String mode = args.length > 2 ? args[2] : "median";
+        Integer threshold = null;
+        boolean finalPass = false;
+        for (int i = 3; i < args.length; i++) {
+            if (args[i].equals("final")) {
+                finalPass = true;
+            } else if (i == 3) {
+                try {
+                    threshold = Integer.parseInt(args[i]);
+                } catch (NumberFormatException e) {
+                    System.out.println("Invalid threshold: " + args[i]);
+                    return;
+                }
+            } else {
+                System.out.println("Unknown argument: " + args[i]);
+                return;
+            }
+        }
+
+        int[] data = loadData(inputFile);
+        switch (mode) {
+            case "median":
+                quicksortMedianPivot(data, 0, data.length - 1);
+                break;
+            case "threshold":
+                if (threshold != null) {
+                    quicksortInsertionThreshold(data, 0, data.length - 1, threshold,
+                            PartitionStrategy.FIRST_PIVOT, finalPass, SortMetrics.NONE);
+                } else {
+                    if (!new File(SortThresholds.DEFAULT_FILE).isFile()) {
+                        System.out.println("No " + SortThresholds.DEFAULT_FILE + " found, using threshold "
+                                + SortThresholds.DEFAULT_THRESHOLD + " (run ThresholdCalibrator to measure one)");
+                    }
+                    quicksortInsertionThreshold(data, 0, data.length - 1, PartitionStrategy.FIRST_PIVOT,
+                            finalPass, SortMetrics.NONE);
+                }
+                break;
+            case "introsort":
+                introsort(data, 0, data.length - 1);
+                break;
+            case "threeway":
+                quicksort(data, 0, data.length - 1, PartitionStrategy.THREE_WAY);
+                break;
+            case "dualpivot":
+                quicksort(data, 0, data.length - 1, PartitionStrategy.DUAL_PIVOT);
+                break;
+            case "block":
+                quicksortMedianPivot(data, 0, data.length - 1, PartitionStrategy.BLOCK, SortMetrics.NONE);
+                break;
+            case "radix":
+                RadixSort.lsdRadixSort(data, 0, data.length - 1);
+                break;
+            case "msd":
+                RadixSort.parallelMsdRadixSort(data, 0, data.length - 1);
+                break;
+            case "auto":
+                autoSort(data, 0, data.length - 1);
+                break;
+            default:
+                System.out.println("Unknown mode: " + mode);
+                return;
+        }
+        saveData(outputFile, data);
     }
 
     public static void quicksortInsertionThreshold(int[] data, int low, int high, int threshold) {
+        quicksortInsertionThreshold(data, low, high, threshold, SortMetrics.NONE);
+    }
+
+    public static void quicksortInsertionThreshold(int[] data, int low, int high, int threshold,
+                                                   SortMetrics metrics) {
+        quicksortInsertionThreshold(data, low, high, threshold, PartitionStrategy.FIRST_PIVOT, metrics);
+    }
+
+    // strategy picks the partition kernel: FIRST_PIVOT (the default), MEDIAN_OF_THREE or BLOCK.
+    public static void quicksortInsertionThreshold(int[] data, int low, int high, int threshold,
+                                                   PartitionStrategy strategy, SortMetrics metrics) {
+        quicksortInsertionThreshold(data, low, high, threshold, strategy, false, metrics);
+    }
+
+    // Uses the threshold calibrated for the first-pivot kernel (see SortThresholds).
+    public static void quicksortInsertionThreshold(int[] data, int low, int high) {
+        quicksortInsertionThreshold(data, low, high, PartitionStrategy.FIRST_PIVOT, false, SortMetrics.NONE);
+    }
+
+    // Uses the threshold calibrated for this kernel and mode (see SortThresholds).
+    public static void quicksortInsertionThreshold(int[] data, int low, int high, PartitionStrategy strategy,
+                                                   boolean finalInsertionPass, SortMetrics metrics) {
+        SortThresholds thresholds = SortThresholds.current();
+        int threshold = finalInsertionPass
+                ? thresholds.finalPassThreshold(strategy)
+                : thresholds.insertionThreshold(strategy);
+        quicksortInsertionThreshold(data, low, high, threshold, strategy, finalInsertionPass, metrics);
+    }
+
+    // With finalInsertionPass, ranges of threshold elements or fewer are left unsorted during
+    // the recursion and the whole range gets one insertion sort at the end. Every element is
+    // by then within its small block, so that pass moves nothing further than threshold.
+    public static void quicksortInsertionThreshold(int[] data, int low, int high, int threshold,
+                                                   PartitionStrategy strategy, boolean finalInsertionPass,
+                                                   SortMetrics metrics) {
+        requireTwoWay(strategy);
+        quicksortInsertionThreshold(data, low, high, threshold, strategy, finalInsertionPass, metrics, 1);
+        if (finalInsertionPass) {
+            insertionSort(data, low, high, metrics);
+        }
+    }
+
+    private static void quicksortInsertionThreshold(int[] data, int low, int high, int threshold,
+                                                    PartitionStrategy strategy, boolean finalInsertionPass,
+                                                    SortMetrics metrics, int depth) {
         if (high - low + 1 <= threshold) {
-            insertionSort(data, low, high);
+            if (!finalInsertionPass) {
+                insertionSort(data, low, high, metrics);
+            }
         } else if (low < high) {
-            int pivotIndex = partitionFirstPivot(data, low, high);
-            quicksortInsertionThreshold(data, low, pivotIndex - 1, threshold);
-            quicksortInsertionThreshold(data, pivotIndex + 1, high, threshold);
+            metrics.recordDepth(depth);
+            int pivotIndex = partition(data, low, high, strategy, metrics);
+            quicksortInsertionThreshold(data, low, pivotIndex - 1, threshold, strategy, finalInsertionPass,
+                    metrics, depth + 1);
+            quicksortInsertionThreshold(data, pivotIndex + 1, high, threshold, strategy, finalInsertionPass,
+                    metrics, depth + 1);
         }
     }
 
     public static void quicksortMedianPivot(int[] data, int low, int high) {
+        quicksortMedianPivot(data, low, high, SortMetrics.NONE);
+    }
+
+    public static void quicksortMedianPivot(int[] data, int low, int high, SortMetrics metrics) {
+        quicksortMedianPivot(data, low, high, PartitionStrategy.MEDIAN_OF_THREE, metrics);
+    }
+
+    // strategy picks the partition kernel: MEDIAN_OF_THREE (the default) or BLOCK, which takes
+    // the same median-of-three pivot. FIRST_PIVOT is accepted too.
+    public static void quicksortMedianPivot(int[] data, int low, int high, PartitionStrategy strategy,
+                                            SortMetrics metrics) {
+        requireTwoWay(strategy);
+        quicksortMedianPivot(data, low, high, strategy, metrics, 1);
+    }
+
+    private static void quicksortMedianPivot(int[] data, int low, int high, PartitionStrategy strategy,
+                                             SortMetrics metrics, int depth) {
         if (low < high) {
-            int pivotIndex = partitionMedianPivot(data, low, high);
-            quicksortMedianPivot(data, low, pivotIndex - 1);
-            quicksortMedianPivot(data, pivotIndex + 1, high);
+            metrics.recordDepth(depth);
+            int pivotIndex = partition(data, low, high, strategy, metrics);
+            quicksortMedianPivot(data, low, pivotIndex - 1, strategy, metrics, depth + 1);
+            quicksortMedianPivot(data, pivotIndex + 1, high, strategy, metrics, depth + 1);
+        }
+    }
+
+    public static void quicksort(int[] data, int low, int high, PartitionStrategy strategy) {
+        quicksort(data, low, high, strategy, SortMetrics.NONE);
+    }
+
+    // Quicksort with a selectable partition scheme. Every scheme recurses into its smaller
+    // parts and loops on the largest one, so the stack stays at O(log n).
+    public static void quicksort(int[] data, int low, int high, PartitionStrategy strategy, SortMetrics metrics) {
+        switch (strategy) {
+            case FIRST_PIVOT:
+            case MEDIAN_OF_THREE:
+            case BLOCK:
+                quicksortTwoWay(data, low, high, strategy, metrics, 1);
+                break;
+            case THREE_WAY:
+                quicksortThreeWay(data, low, high, metrics, 1);
+                break;
+            case DUAL_PIVOT:
+                quicksortDualPivot(data, low, high, metrics, 1);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown partition strategy: " + strategy);
+        }
+    }
+
+    private static void quicksortTwoWay(int[] data, int low, int high, PartitionStrategy strategy,
+                                        SortMetrics metrics, int depth) {
+        while (low < high) {
+            metrics.recordDepth(depth);
+            int pivotIndex = partition(data, low, high, strategy, metrics);
+            depth++;
+            if (pivotIndex - low < high - pivotIndex) {
+                quicksortTwoWay(data, low, pivotIndex - 1, strategy, metrics, depth);
+                low = pivotIndex + 1;
+            } else {
+                quicksortTwoWay(data, pivotIndex + 1, high, strategy, metrics, depth);
+                high = pivotIndex - 1;
+            }
+        }
+    }
+
+    // Two-way partition of data[low..high] with the given kernel; returns the pivot index.
+    static int partition(int[] data, int low, int high, PartitionStrategy strategy, SortMetrics metrics) {
+        switch (strategy) {
+            case FIRST_PIVOT:
+                return partitionFirstPivot(data, low, high, metrics);
+            case MEDIAN_OF_THREE:
+                return partitionMedianPivot(data, low, high, metrics);
+            case BLOCK:
+                return BlockPartition.partition(data, low, high, metrics);
+            default:
+                throw new IllegalArgumentException("Not a two-way partition strategy: " + strategy);
+        }
+    }
+
+    private static void requireTwoWay(PartitionStrategy strategy) {
+        if (strategy == PartitionStrategy.THREE_WAY || strategy == PartitionStrategy.DUAL_PIVOT) {
+            throw new IllegalArgumentException("Not a two-way partition strategy: " + strategy);
+        }
+    }
+
+    // Bentley-McIlroy three-way partitioning: keys equal to the pivot are parked at both ends
+    // during the scan and swapped into the middle afterwards, so distinct keys move no more
+    // than in a two-way partition while runs of equal keys drop out of the recursion.
+    private static void quicksortThreeWay(int[] data, int low, int high, SortMetrics metrics, int depth) {
+        while (low < high) {
+            metrics.recordDepth(depth);
+            medianOfThreeToLow(data, low, high, metrics);
+            int pivot = data[low];
+            // data[low..p] == pivot, data[p+1..i-1] < pivot, data[j+1..q-1] > pivot, data[q..high] == pivot.
+            int i = low;
+            int j = high + 1;
+            int p = low;
+            int q = high + 1;
+            long comparisons = 0;
+            long exchanges = 0;
+            while (true) {
+                while (++i < high && data[i] < pivot) {
+                    comparisons++;
+                }
+                while (--j > low && data[j] > pivot) {
+                    comparisons++;
+                }
+                comparisons += 2;
+                if (i == j && data[i] == pivot) {
+                    swap(data, ++p, i);
+                    exchanges++;
+                }
+                if (i >= j) {
+                    break;
+                }
+                swap(data, i, j);
+                exchanges++;
+                comparisons += 2;
+                if (data[i] == pivot) {
+                    swap(data, ++p, i);
+                    exchanges++;
+                }
+                if (data[j] == pivot) {
+                    swap(data, --q, j);
+                    exchanges++;
+                }
+            }
+            // Swap the equal keys from both ends into the middle.
+            i = j + 1;
+            for (int k = low; k <= p; k++) {
+                swap(data, k, j--);
+            }
+            for (int k = high; k >= q; k--) {
+                swap(data, k, i++);
+            }
+            exchanges += (p - low + 1) + (high - q + 1);
+            metrics.addComparisons(comparisons);
+            metrics.addExchanges(exchanges);
+
+            // Now data[low..j] < pivot, data[j+1..i-1] == pivot and data[i..high] > pivot.
+            depth++;
+            if (j - low < high - i) {
+                quicksortThreeWay(data, low, j, metrics, depth);
+                low = i;
+            } else {
+                quicksortThreeWay(data, i, high, metrics, depth);
+                high = j;
+            }
+        }
+    }
+
+    private static void quicksortDualPivot(int[] data, int low, int high, SortMetrics metrics, int depth) {
+        while (low < high) {
+            metrics.recordDepth(depth);
+            long comparisons = 1;
+            long exchanges = 2;
+            // Take the pivots from the tertiles so presorted input splits evenly.
+            int third = (high - low + 1) / 3;
+            swap(data, low, low + third);
+            swap(data, high, high - third);
+            if (data[low] > data[high]) {
+                swap(data, low, high);
+                exchanges++;
+            }
+            int p = data[low];
+            int q = data[high];
+            if (p == q) {
+                // Both pivots are equal, so hand the range to the three-way (Bentley-McIlroy) partition.
+                metrics.addComparisons(comparisons);
+                metrics.addExchanges(exchanges);
+                quicksortThreeWay(data, low, high, metrics, depth);
+                return;
+            }
+
+            // data[low+1..l-1] < p, data[l..k-1] in [p, q], data[g+1..high-1] > q.
+            int l = low + 1;
+            int g = high - 1;
+            for (int k = l; k <= g; k++) {
+                int value = data[k];
+                comparisons++;
+                if (value < p) {
+                    swap(data, k, l++);
+                    exchanges++;
+                } else {
+                    comparisons++;
+                    if (value > q) {
+                        while (k < g && data[g] > q) {
+                            g--;
+                            comparisons++;
+                        }
+                        comparisons++;
+                        swap(data, k, g--);
+                        exchanges++;
+                        comparisons++;
+                        if (data[k] < p) {
+                            swap(data, k, l++);
+                            exchanges++;
+                        }
+                    }
+                }
+            }
+            swap(data, low, --l);
+            swap(data, high, ++g);
+            exchanges += 2;
+
+            // Pull keys equal to either pivot out of the middle part; they are already placed.
+            int middleLow = l + 1;
+            int middleHigh = g - 1;
+            for (int k = middleLow; k <= middleHigh; k++) {
+                comparisons++;
+                if (data[k] == p) {
+                    swap(data, k, middleLow++);
+                    exchanges++;
+                } else {
+                    comparisons++;
+                    if (data[k] == q) {
+                        while (k < middleHigh && data[middleHigh] == q) {
+                            middleHigh--;
+                            comparisons++;
+                        }
+                        swap(data, k, middleHigh--);
+                        exchanges++;
+                        comparisons++;
+                        if (data[k] == p) {
+                            swap(data, k, middleLow++);
+                            exchanges++;
+                        }
+                    }
+                }
+            }
+            metrics.addComparisons(comparisons);
+            metrics.addExchanges(exchanges);
+
+            // Recurse into the two smaller of the three parts and loop on the largest.
+            depth++;
+            int leftSize = l - low;
+            int middleSize = middleHigh - middleLow + 1;
+            int rightSize = high - g;
+            if (leftSize >= middleSize && leftSize >= rightSize) {
+                quicksortDualPivot(data, middleLow, middleHigh, metrics, depth);
+                quicksortDualPivot(data, g + 1, high, metrics, depth);
+                high = l - 1;
+            } else if (middleSize >= rightSize) {
+                quicksortDualPivot(data, low, l - 1, metrics, depth);
+                quicksortDualPivot(data, g + 1, high, metrics, depth);
+                low = middleLow;
+                high = middleHigh;
+            } else {
+                quicksortDualPivot(data, low, l - 1, metrics, depth);
+                quicksortDualPivot(data, middleLow, middleHigh, metrics, depth);
+                low = g + 1;
+            }
+        }
+    }
+
+    public static void introsort(int[] data, int low, int high) {
+        introsort(data, low, high, SortMetrics.NONE);
+    }
+
+    // Median-of-three quicksort that switches to heapsort once the recursion goes deeper
+    // than 2*log2(n), so sorted, reversed or adversarial input stays O(n log n). Only the
+    // smaller side of each partition is recursed into, which bounds the stack at log2(n).
+    public static void introsort(int[] data, int low, int high, SortMetrics metrics) {
+        if (low >= high) {
+            return;
+        }
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(high - low + 1));
+        introsort(data, low, high, depthLimit, metrics, 1);
+    }
+
+    private static void introsort(int[] data, int low, int high, int depthLimit, SortMetrics metrics, int depth) {
+        while (high - low + 1 > INTROSORT_INSERTION_CUTOFF) {
+            if (depth > depthLimit) {
+                heapSort(data, low, high, metrics);
+                return;
+            }
+            metrics.recordDepth(depth);
+            int pivotIndex = partitionMedianPivot(data, low, high, metrics);
+            depth++;
+            if (pivotIndex - low < high - pivotIndex) {
+                introsort(data, low, pivotIndex - 1, depthLimit, metrics, depth);
+                low = pivotIndex + 1;
+            } else {
+                introsort(data, pivotIndex + 1, high, depthLimit, metrics, depth);
+                high = pivotIndex - 1;
+            }
         }
+        insertionSort(data, low, high, metrics);
     }
 
-    private static int partitionFirstPivot(int[] data, int low, int high) {
+    public static void autoSort(int[] data, int low, int high) {
+        autoSort(data, low, high, SortMetrics.NONE);
+    }
+
+    // Picks a sort from the size and order of the data:
+    //   small ranges                           -> introsort
+    //   mostly ascending or descending runs    -> natural run merge, close to linear time
+    //   anything else, more than one core      -> parallel MSD radix sort when large enough
+    //   anything else                          -> LSD radix sort
+    public static void autoSort(int[] data, int low, int high, SortMetrics metrics) {
+        int n = high - low + 1;
+        if (n < AUTO_RADIX_MIN_SIZE) {
+            introsort(data, low, high, metrics);
+        } else if (isMostlyOrdered(data, low, high)) {
+            NaturalMergeSort.naturalRunMergeSort(data, low, high, metrics);
+        } else if (n >= AUTO_PARALLEL_MIN_SIZE && Runtime.getRuntime().availableProcessors() > 1) {
+            RadixSort.parallelMsdRadixSort(data, low, high, ForkJoinPool.commonPool(), metrics);
+        } else {
+            RadixSort.lsdRadixSort(data, low, high, metrics);
+        }
+    }
+
+    // True when neighbouring elements change direction (up to down or back) at most once
+    // per 64 elements, i.e. the range is made of long ascending or descending runs. Random
+    // data changes direction every couple of elements, so the scan stops almost at once.
+    static boolean isMostlyOrdered(int[] data, int low, int high) {
+        int limit = (high - low + 1) / 64;
+        int changes = 0;
+        int direction = 0;
+        for (int i = low + 1; i <= high; i++) {
+            int d = Integer.compare(data[i], data[i - 1]);
+            if (d != 0 && d != direction) {
+                if (direction != 0 && ++changes > limit) {
+                    return false;
+                }
+                direction = d;
+            }
+        }
+        return true;
+    }
+
+    public static void heapSort(int[] data, int low, int high, SortMetrics metrics) {
+        int n = high - low + 1;
+        long[] counts = new long[2];
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(data, low, i, n, counts);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(data, low, low + end);
+            counts[1]++;
+            siftDown(data, low, 0, end, counts);
+        }
+        metrics.addComparisons(counts[0]);
+        metrics.addExchanges(counts[1]);
+    }
+
+    // Moves data[low + i] down the max-heap of the given size. counts holds comparisons, exchanges.
+    private static void siftDown(int[] data, int low, int i, int size, long[] counts) {
+        int value = data[low + i];
+        int child;
+        while ((child = 2 * i + 1) < size) {
+            if (child + 1 < size) {
+                counts[0]++;
+                if (data[low + child + 1] > data[low + child]) {
+                    child++;
+                }
+            }
+            counts[0]++;
+            if (data[low + child] <= value) {
+                break;
+            }
+            data[low + i] = data[low + child];
+            counts[1]++;
+            i = child;
+        }
+        data[low + i] = value;
+    }
+
+    static int partitionFirstPivot(int[] data, int low, int high, SortMetrics metrics) {
         int pivot = data[low];
         int left = low + 1;
         int right = high;
+        long comparisons = 0;
+        long exchanges = 1;
         while (true) {
-            while (left <= right && data[left] <= pivot) left++;
-            while (left <= right && data[right] >= pivot) right--;
+            while (left <= right && data[left] <= pivot) {
+                left++;
+                comparisons++;
+            }
+            while (left <= right && data[right] >= pivot) {
+                right--;
+                comparisons++;
+            }
             if (left <= right) {
                 swap(data, left, right);
+                exchanges++;
             } else {
                 break;
             }
         }
         swap(data, low, right);
+        metrics.addComparisons(comparisons);
+        metrics.addExchanges(exchanges);
         return right;
     }
 
-    private static int partitionMedianPivot(int[] data, int low, int high) {
-        int mid = (low + high) / 2;
+    static int partitionMedianPivot(int[] data, int low, int high, SortMetrics metrics) {
+        medianOfThreeToLow(data, low, high, metrics);
+        return partitionFirstPivot(data, low, high, metrics);
+    }
+
+    // Moves the median of data[low], data[mid] and data[high] to data[low].
+    static void medianOfThreeToLow(int[] data, int low, int high, SortMetrics metrics) {
+        int mid = (low + high) >>> 1;
         if (data[low] > data[mid]) swap(data, low, mid);
         if (data[low] > data[high]) swap(data, low, high);
         if (data[mid] > data[high]) swap(data, mid, high);
         swap(data, mid, low);
-        return partitionFirstPivot(data, low, high);
+        metrics.addComparisons(3);
+        metrics.addExchanges(1);
     }
 
     public static void insertionSort(int[] data, int low, int high) {
+        insertionSort(data, low, high, SortMetrics.NONE);
+    }
+
+    // Each shifted element is reported as one exchange.
+    public static void insertionSort(int[] data, int low, int high, SortMetrics metrics) {
+        long comparisons = 0;
+        long exchanges = 0;
         for (int i = low + 1; i <= high; i++) {
             int key = data[i];
             int j = i - 1;
             while (j >= low && data[j] > key) {
                 data[j + 1] = data[j];
                 j--;
+                comparisons++;
+                exchanges++;
+            }
+            if (j >= low) {
+                comparisons++;
             }
             data[j + 1] = key;
         }
+        metrics.addComparisons(comparisons);
+        metrics.addExchanges(exchanges);
     }
 
     public static int[] loadData(String fileName) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
-            return reader.lines().mapToInt(Integer::parseInt).toArray();
+        try {
+            return IntFileReader.readAll(fileName);
         } catch (IOException e) {
             e.printStackTrace();
             return new int[0];
@@ -73,11 +591,8 @@ public class QuicksortAdvanced {
     }
 
     public static void saveData(String fileName, int[] data) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
-            for (int value : data) {
-                writer.write(Integer.toString(value));
-                writer.newLine();
-            }
+        try {
+            IntFileWriter.writeAll(fileName, data);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -0,0 +1,269 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// Radix sorts for int keys. Instead of comparing keys they are distributed by one digit of
+// bits at a time, so the cost is a fixed number of linear passes whatever the input order.
+// The sign bit is flipped while a digit is extracted, which makes negative numbers sort
+// below positive ones without changing the values stored.
+// The metrics report no comparisons; every element moved counts as one exchange.
+public class RadixSort {
+    // Ranges at least this large use 11-bit digits (three passes) instead of 8-bit (four).
+    public static final int WIDE_DIGIT_THRESHOLD = 1 << 20;
+    // The parallel MSD sort finishes buckets this small with a sequential LSD sort.
+    public static final int MSD_LSD_CUTOFF = 1 << 14;
+    // Buckets larger than this are sorted as separate fork/join tasks.
+    public static final int PARALLEL_CUTOFF = 1 << 16;
+    private static final int MSD_BITS = 8;
+    private static final int INSERTION_CUTOFF = 32;
+
+    public static void lsdRadixSort(int[] data, int low, int high) {
+        lsdRadixSort(data, low, high, SortMetrics.NONE);
+    }
+
+    public static void lsdRadixSort(int[] data, int low, int high, SortMetrics metrics) {
+        int bits = high - low + 1 >= WIDE_DIGIT_THRESHOLD ? 11 : 8;
+        lsdRadixSort(data, low, high, bits, metrics);
+    }
+
+    // Least-significant-digit radix sort with digits of the given width (8 or 11 bits are the
+    // useful choices). Needs a scratch array the size of the range.
+    public static void lsdRadixSort(int[] data, int low, int high, int bits, SortMetrics metrics) {
+        if (bits < 1 || bits > 16) {
+            throw new IllegalArgumentException("Digit width must be between 1 and 16 bits: " + bits);
+        }
+        if (high - low < 1) {
+            return;
+        }
+        int[] scratch = new int[high - low + 1];
+        lsdSort(data, scratch, low, -low, high, bits, Integer.SIZE, metrics);
+    }
+
+    // Sorts data[low..high] on its lowest keyBits bits; the higher bits must already be equal
+    // throughout the range. scratch[i + scratchOffset] is used for data[i].
+    //
+    // One counting pass builds the histograms of every digit at once. A digit whose values
+    // all fall into one bucket cannot change the order, so its pass is skipped; data with a
+    // small key range, or a bucket handed down by the MSD sort, needs only a pass or two.
+    private static void lsdSort(int[] data, int[] scratch, int low, int scratchOffset, int high,
+                                int bits, int keyBits, SortMetrics metrics) {
+        int n = high - low + 1;
+        int radix = 1 << bits;
+        int mask = radix - 1;
+        int digits = (keyBits + bits - 1) / bits;
+        int[][] counts = new int[digits][radix];
+        for (int i = low; i <= high; i++) {
+            int key = data[i] ^ Integer.MIN_VALUE;
+            for (int d = 0; d < digits; d++) {
+                counts[d][(key >>> (d * bits)) & mask]++;
+            }
+        }
+
+        int[] source = data;
+        int sourceOffset = 0;
+        int[] target = scratch;
+        int targetOffset = scratchOffset;
+        long moves = 0;
+        for (int d = 0; d < digits; d++) {
+            int[] count = counts[d];
+            int shift = d * bits;
+            if (count[((source[low + sourceOffset] ^ Integer.MIN_VALUE) >>> shift) & mask] == n) {
+                continue;
+            }
+            // Turn the counts into the first target index of each bucket.
+            int next = low + targetOffset;
+            for (int b = 0; b < radix; b++) {
+                int c = count[b];
+                count[b] = next;
+                next += c;
+            }
+            for (int i = low; i <= high; i++) {
+                int value = source[i + sourceOffset];
+                target[count[((value ^ Integer.MIN_VALUE) >>> shift) & mask]++] = value;
+            }
+            moves += n;
+            int[] swapArray = source;
+            source = target;
+            target = swapArray;
+            int swapOffset = sourceOffset;
+            sourceOffset = targetOffset;
+            targetOffset = swapOffset;
+        }
+        if (source != data) {
+            System.arraycopy(source, low + sourceOffset, data, low, n);
+            moves += n;
+        }
+        metrics.addExchanges(moves);
+    }
+
+    public static void parallelMsdRadixSort(int[] data, int low, int high) {
+        parallelMsdRadixSort(data, low, high, ForkJoinPool.commonPool(), SortMetrics.NONE);
+    }
+
+    // Most-significant-digit radix sort on a fork/join pool. The top 8 bits split the range
+    // into 256 buckets that are sorted independently, large ones as separate tasks. The first
+    // split of a large range is itself parallel: each block of the range is counted and then
+    // scattered by its own task. The metrics object is shared, so it must be thread-safe.
+    public static void parallelMsdRadixSort(int[] data, int low, int high, ForkJoinPool pool,
+                                            SortMetrics metrics) {
+        if (high - low < 1) {
+            return;
+        }
+        int[] scratch = new int[high - low + 1];
+        pool.invoke(new MsdTask(data, scratch, low, high, -low, Integer.SIZE - MSD_BITS,
+                pool.getParallelism(), metrics, 1));
+    }
+
+    private static class MsdTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] data;
+        private final int[] scratch;
+        private final int low;
+        private final int high;
+        private final int scratchOffset;
+        private final int shift;
+        private final int parallelism;
+        private final SortMetrics metrics;
+        private final int depth;
+        // Links the tasks forked by one split so they can be joined together.
+        private MsdTask next;
+
+        MsdTask(int[] data, int[] scratch, int low, int high, int scratchOffset, int shift,
+                int parallelism, SortMetrics metrics, int depth) {
+            this.data = data;
+            this.scratch = scratch;
+            this.low = low;
+            this.high = high;
+            this.scratchOffset = scratchOffset;
+            this.shift = shift;
+            this.parallelism = parallelism;
+            this.metrics = metrics;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            int n = high - low + 1;
+            metrics.recordDepth(depth);
+            if (n <= INSERTION_CUTOFF) {
+                QuicksortAdvanced.insertionSort(data, low, high, metrics);
+                return;
+            }
+            if (n <= MSD_LSD_CUTOFF) {
+                lsdSort(data, scratch, low, scratchOffset, high, MSD_BITS, shift + MSD_BITS, metrics);
+                return;
+            }
+
+            int radix = 1 << MSD_BITS;
+            int[] bucketStart = n > PARALLEL_CUTOFF ? parallelSplit() : split();
+            metrics.addExchanges(2L * n);
+            if (shift == 0) {
+                return;
+            }
+            MsdTask forked = null;
+            for (int b = 0; b < radix; b++) {
+                int bucketLow = bucketStart[b];
+                int bucketHigh = bucketStart[b + 1] - 1;
+                if (bucketHigh - bucketLow < 1) {
+                    continue;
+                }
+                MsdTask task = new MsdTask(data, scratch, bucketLow, bucketHigh, scratchOffset,
+                        shift - MSD_BITS, parallelism, metrics, depth + 1);
+                if (bucketHigh - bucketLow + 1 > PARALLEL_CUTOFF) {
+                    task.fork();
+                    task.next = forked;
+                    forked = task;
+                } else {
+                    task.compute();
+                }
+            }
+            for (MsdTask task = forked; task != null; task = task.next) {
+                task.join();
+            }
+        }
+
+        private int digit(int value) {
+            return ((value ^ Integer.MIN_VALUE) >>> shift) & ((1 << MSD_BITS) - 1);
+        }
+
+        // Distributes the range by the current digit through scratch and back. Returns the
+        // start index of every bucket, plus one entry for the end of the range.
+        private int[] split() {
+            int radix = 1 << MSD_BITS;
+            int[] count = new int[radix + 1];
+            for (int i = low; i <= high; i++) {
+                count[digit(data[i]) + 1]++;
+            }
+            count[0] = low;
+            for (int b = 1; b <= radix; b++) {
+                count[b] += count[b - 1];
+            }
+            int[] next = count.clone();
+            for (int i = low; i <= high; i++) {
+                int value = data[i];
+                scratch[next[digit(value)]++ + scratchOffset] = value;
+            }
+            System.arraycopy(scratch, low + scratchOffset, data, low, high - low + 1);
+            return count;
+        }
+
+        // The same as split, with the counting, scattering and copying of each block of the
+        // range done by a separate task.
+        private int[] parallelSplit() {
+            int radix = 1 << MSD_BITS;
+            int n = high - low + 1;
+            int blocks = (int) Math.min(4L * parallelism, n / PARALLEL_CUTOFF + 1);
+            int blockSize = (n + blocks - 1) / blocks;
+            int[][] counts = new int[blocks][radix];
+
+            ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[blocks];
+            for (int k = 0; k < blocks; k++) {
+                int blockLow = low + k * blockSize;
+                int blockHigh = Math.min(high, blockLow + blockSize - 1);
+                int[] count = counts[k];
+                tasks[k] = ForkJoinTask.adapt(() -> {
+                    for (int i = blockLow; i <= blockHigh; i++) {
+                        count[digit(data[i])]++;
+                    }
+                });
+            }
+            ForkJoinTask.invokeAll(tasks);
+
+            // Each block writes its part of every bucket after the blocks before it.
+            int[] bucketStart = new int[radix + 1];
+            int next = low;
+            for (int b = 0; b < radix; b++) {
+                bucketStart[b] = next;
+                for (int k = 0; k < blocks; k++) {
+                    int c = counts[k][b];
+                    counts[k][b] = next;
+                    next += c;
+                }
+            }
+            bucketStart[radix] = next;
+
+            for (int k = 0; k < blocks; k++) {
+                int blockLow = low + k * blockSize;
+                int blockHigh = Math.min(high, blockLow + blockSize - 1);
+                int[] offset = counts[k];
+                tasks[k] = ForkJoinTask.adapt(() -> {
+                    for (int i = blockLow; i <= blockHigh; i++) {
+                        int value = data[i];
+                        scratch[offset[digit(value)]++ + scratchOffset] = value;
+                    }
+                });
+            }
+            ForkJoinTask.invokeAll(tasks);
+
+            for (int k = 0; k < blocks; k++) {
+                int blockLow = low + k * blockSize;
+                int length = Math.max(0, Math.min(high, blockLow + blockSize - 1) - blockLow + 1);
+                tasks[k] = ForkJoinTask.adapt(() ->
+                        System.arraycopy(scratch, blockLow + scratchOffset, data, blockLow, length));
+            }
+            ForkJoinTask.invokeAll(tasks);
+            return bucketStart;
+        }
+    }
+}
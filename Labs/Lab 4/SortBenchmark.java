@@ -0,0 +1,511 @@
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// Benchmark harness for every sort variant in this folder. Each variant runs against the
+// asc/rev/ran .dat files and against synthetic arrays of the requested sizes, with warmup
+// iterations followed by measured ones, in the style of a JMH average-time/throughput run.
+// Besides throughput it reports what the JMH gc profiler would: allocation rate, allocation
+// per operation, and GC count and time, plus the comparisons/exchanges of one counted run.
+//
+// Usage: java SortBenchmark [options]
+//   --data-dir <dir>         folder holding the .dat files (default: current directory)
+//   --sizes <n,n,...>        synthetic array sizes, e.g. 1000000,10000000,100000000 (default: 1000000)
+//   --distributions <d,...>  synthetic distributions: asc, rev, ran, or dupK for random keys
+//                            drawn from K distinct values, e.g. dup2,dup16 (default: asc,rev,ran)
+//   --thresholds <t,...>     insertion sort thresholds to sweep (default: 4,8,16,32,64)
+//   --variants <name,...>    only run variants whose name starts with one of these
+//   --warmup <n>             warmup iterations (default: 3)
+//   --iterations <n>         measured iterations (default: 5)
+//   --time <ms>              minimum time per iteration (default: 500)
+//   --quadratic-limit <n>    largest degenerate input given to O(n^2) variants (default: 10000)
+//   --csv <file>             also write the results as CSV
+public class SortBenchmark {
+
+    // One benchmarked routine. prepare() restores the unsorted input and is not timed; run() is.
+    interface Workload {
+        void prepare(int[] source);
+
+        void run(SortMetrics metrics);
+    }
+
+    // Sorts an int[] range in place.
+    interface IntSorter {
+        void sort(int[] data, SortMetrics metrics);
+    }
+
+    // A named workload, with the inputs on which it degrades to O(n^2).
+    static final class Variant {
+        final String name;
+        final boolean quadraticOnSorted;
+        final boolean quadraticOnDuplicates;
+        final Workload workload;
+
+        Variant(String name, boolean quadraticOnSorted, boolean quadraticOnDuplicates, Workload workload) {
+            this.name = name;
+            this.quadraticOnSorted = quadraticOnSorted;
+            this.quadraticOnDuplicates = quadraticOnDuplicates;
+            this.workload = workload;
+        }
+
+        boolean isQuadraticOn(Dataset dataset) {
+            return (quadraticOnSorted && dataset.sorted) || (quadraticOnDuplicates && dataset.duplicates);
+        }
+    }
+
+    static final class Dataset {
+        final String name;
+        final boolean sorted;
+        final boolean duplicates;
+        final int[] data;
+
+        Dataset(String name, boolean sorted, boolean duplicates, int[] data) {
+            this.name = name;
+            this.sorted = sorted;
+            this.duplicates = duplicates;
+            this.data = data;
+        }
+    }
+
+    // Copies the source into a reusable array before every run.
+    static final class ArrayWorkload implements Workload {
+        private final IntSorter sorter;
+        private int[] work = new int[0];
+
+        ArrayWorkload(IntSorter sorter) {
+            this.sorter = sorter;
+        }
+
+        @Override
+        public void prepare(int[] source) {
+            if (work.length != source.length) {
+                work = new int[source.length];
+            }
+            System.arraycopy(source, 0, work, 0, source.length);
+        }
+
+        @Override
+        public void run(SortMetrics metrics) {
+            sorter.sort(work, metrics);
+        }
+    }
+
+    // Sorts a linked list and returns the new head.
+    interface ListSorter {
+        ListNode sort(ListNode head, SortMetrics metrics);
+    }
+
+    // Relinks a reusable set of nodes in source order before every run.
+    static final class ListWorkload implements Workload {
+        private final ListSorter sorter;
+        private ListNode[] nodes = new ListNode[0];
+        private ListNode head;
+
+        ListWorkload(ListSorter sorter) {
+            this.sorter = sorter;
+        }
+
+        @Override
+        public void prepare(int[] source) {
+            if (nodes.length != source.length) {
+                nodes = new ListNode[source.length];
+                for (int i = 0; i < nodes.length; i++) {
+                    nodes[i] = new ListNode(0);
+                }
+            }
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i].value = source[i];
+                nodes[i].next = i + 1 < nodes.length ? nodes[i + 1] : null;
+            }
+            head = nodes.length > 0 ? nodes[0] : null;
+        }
+
+        @Override
+        public void run(SortMetrics metrics) {
+            head = sorter.sort(head, metrics);
+        }
+    }
+
+    // Rebuilds a packed IntLinkedList in source order before every run.
+    static final class PackedListWorkload implements Workload {
+        private final IntLinkedList list;
+
+        PackedListWorkload(boolean offHeap) {
+            list = new IntLinkedList(16, offHeap);
+        }
+
+        @Override
+        public void prepare(int[] source) {
+            list.clear();
+            for (int value : source) {
+                list.add(value);
+            }
+        }
+
+        @Override
+        public void run(SortMetrics metrics) {
+            NaturalMergeSort.naturalRunMergeSort(list, metrics);
+        }
+    }
+
+    private static String dataDir = ".";
+    private static int[] sizes = {1_000_000};
+    private static String[] distributions = {"asc", "rev", "ran"};
+    private static int[] thresholds = {4, 8, 16, 32, 64};
+    private static String[] variantFilter = null;
+    private static int warmupIterations = 3;
+    private static int measuredIterations = 5;
+    private static long iterationNanos = 500_000_000L;
+    private static int quadraticLimit = 10_000;
+    private static String csvFile = null;
+
+    public static void main(String[] args) throws IOException {
+        parseArgs(args);
+        List<Variant> variants = createVariants();
+        List<Dataset> datasets = loadDatasets();
+
+        PrintWriter csv = csvFile != null ? new PrintWriter(new FileWriter(csvFile)) : null;
+        if (csv != null) {
+            csv.println("variant,dataset,size,ops_per_s,ops_per_s_error,ns_per_element,"
+                    + "alloc_mb_per_s,alloc_bytes_per_op,gc_count,gc_ms,comparisons_per_op,exchanges_per_op");
+        }
+        System.out.printf("%-28s %-12s %12s %14s %12s %12s %14s %14s %6s %8s %14s %14s%n",
+                "Variant", "Dataset", "Size", "ops/s", "error", "ns/elem",
+                "alloc MB/s", "alloc B/op", "gc", "gc ms", "cmp/op", "xchg/op");
+
+        for (Dataset dataset : datasets) {
+            for (Variant variant : variants) {
+                if (variant.isQuadraticOn(dataset) && dataset.data.length > quadraticLimit) {
+                    System.out.printf("%-28s %-12s %12d   skipped (quadratic on this input)%n",
+                            variant.name, dataset.name, dataset.data.length);
+                    continue;
+                }
+                Result result = measure(variant, dataset);
+                System.out.printf("%-28s %-12s %12d %14.2f %12.2f %12.2f %14.2f %14.1f %6d %8d %14d %14d%n",
+                        variant.name, dataset.name, dataset.data.length, result.opsPerSecond, result.error,
+                        result.nanosPerElement, result.allocMbPerSecond, result.allocBytesPerOp,
+                        result.gcCount, result.gcMillis, result.comparisons, result.exchanges);
+                if (csv != null) {
+                    csv.printf("%s,%s,%d,%.4f,%.4f,%.4f,%.4f,%.1f,%d,%d,%d,%d%n",
+                            variant.name, dataset.name, dataset.data.length, result.opsPerSecond, result.error,
+                            result.nanosPerElement, result.allocMbPerSecond, result.allocBytesPerOp,
+                            result.gcCount, result.gcMillis, result.comparisons, result.exchanges);
+                    csv.flush();
+                }
+            }
+        }
+        if (csv != null) {
+            csv.close();
+        }
+    }
+
+    static final class Result {
+        double opsPerSecond;
+        double error;
+        double nanosPerElement;
+        double allocMbPerSecond;
+        double allocBytesPerOp;
+        long gcCount;
+        long gcMillis;
+        long comparisons;
+        long exchanges;
+    }
+
+    private static Result measure(Variant variant, Dataset dataset) {
+        Workload workload = variant.workload;
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(workload, dataset.data, null);
+        }
+
+        double[] throughput = new double[measuredIterations];
+        long[] totals = new long[3];  // sort nanos, ops, allocated bytes
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcMillis();
+        for (int i = 0; i < measuredIterations; i++) {
+            long[] iteration = new long[3];
+            runIteration(workload, dataset.data, iteration);
+            throughput[i] = iteration[1] * 1e9 / Math.max(1, iteration[0]);
+            for (int j = 0; j < totals.length; j++) {
+                totals[j] += iteration[j];
+            }
+        }
+
+        Result result = new Result();
+        result.opsPerSecond = mean(throughput);
+        result.error = standardDeviation(throughput, result.opsPerSecond);
+        result.nanosPerElement = totals[0] / (double) totals[1] / Math.max(1, dataset.data.length);
+        result.allocBytesPerOp = totals[2] < 0 ? Double.NaN : totals[2] / (double) totals[1];
+        result.allocMbPerSecond = totals[2] < 0 ? Double.NaN : totals[2] / 1e6 / (totals[0] / 1e9);
+        result.gcCount = gcCount() - gcCountBefore;
+        result.gcMillis = gcMillis() - gcTimeBefore;
+
+        // One extra, untimed run to record how much work the variant does.
+        CountingSortMetrics metrics = new CountingSortMetrics();
+        workload.prepare(dataset.data);
+        workload.run(metrics);
+        result.comparisons = metrics.getComparisons();
+        result.exchanges = metrics.getExchanges();
+        return result;
+    }
+
+    // Runs the workload until the iteration time has passed. Only run() is timed and only
+    // its allocations are counted. Totals go to out[0..2] when out is not null.
+    private static void runIteration(Workload workload, int[] source, long[] out) {
+        long sortNanos = 0;
+        long ops = 0;
+        long allocated = 0;
+        long deadline = System.nanoTime() + iterationNanos;
+        do {
+            workload.prepare(source);
+            long allocBefore = allocatedBytes();
+            long start = System.nanoTime();
+            workload.run(SortMetrics.NONE);
+            sortNanos += System.nanoTime() - start;
+            long allocAfter = allocatedBytes();
+            allocated = allocBefore < 0 || allocated < 0
+                    ? -1 : allocated + Math.max(0, allocAfter - allocBefore - ALLOCATION_PROBE_BYTES);
+            ops++;
+        } while (System.nanoTime() < deadline);
+        if (out != null) {
+            out[0] = sortNanos;
+            out[1] = ops;
+            out[2] = allocated;
+        }
+    }
+
+    private static List<Variant> createVariants() {
+        List<Variant> variants = new ArrayList<>();
+        variants.add(new Variant("quicksortFirstPivot", true, true, new ArrayWorkload(
+                (data, metrics) -> Quicksort.quicksortFirstPivot(data, 0, data.length - 1, metrics))));
+        variants.add(new Variant("quicksortMedianPivot", false, true, new ArrayWorkload(
+                (data, metrics) -> QuicksortAdvanced.quicksortMedianPivot(data, 0, data.length - 1, metrics))));
+        variants.add(new Variant("quicksortMedianPivot-block", false, false, new ArrayWorkload(
+                (data, metrics) -> QuicksortAdvanced.quicksortMedianPivot(
+                        data, 0, data.length - 1, PartitionStrategy.BLOCK, metrics))));
+        for (int threshold : thresholds) {
+            variants.add(new Variant("insertionThreshold-" + threshold, true, true, new ArrayWorkload(
+                    (data, metrics) -> QuicksortAdvanced.quicksortInsertionThreshold(
+                            data, 0, data.length - 1, threshold, metrics))));
+            variants.add(new Variant("insertionThreshold-" + threshold + "-block", false, false, new ArrayWorkload(
+                    (data, metrics) -> QuicksortAdvanced.quicksortInsertionThreshold(
+                            data, 0, data.length - 1, threshold, PartitionStrategy.BLOCK, metrics))));
+        }
+        variants.add(new Variant("insertionThreshold-calibrated", true, true, new ArrayWorkload(
+                (data, metrics) -> QuicksortAdvanced.quicksortInsertionThreshold(
+                        data, 0, data.length - 1, PartitionStrategy.FIRST_PIVOT, false, metrics))));
+        variants.add(new Variant("insertionThreshold-calibrated-block-final", false, false, new ArrayWorkload(
+                (data, metrics) -> QuicksortAdvanced.quicksortInsertionThreshold(
+                        data, 0, data.length - 1, PartitionStrategy.BLOCK, true, metrics))));
+        variants.add(new Variant("threeWay", false, false, new ArrayWorkload(
+                (data, metrics) -> QuicksortAdvanced.quicksort(
+                        data, 0, data.length - 1, PartitionStrategy.THREE_WAY, metrics))));
+        variants.add(new Variant("dualPivot", false, false, new ArrayWorkload(
+                (data, metrics) -> QuicksortAdvanced.quicksort(
+                        data, 0, data.length - 1, PartitionStrategy.DUAL_PIVOT, metrics))));
+        variants.add(new Variant("introsort", false, false, new ArrayWorkload(
+                (data, metrics) -> QuicksortAdvanced.introsort(data, 0, data.length - 1, metrics))));
+        variants.add(new Variant("radixLsd", false, false, new ArrayWorkload(
+                (data, metrics) -> RadixSort.lsdRadixSort(data, 0, data.length - 1, metrics))));
+        variants.add(new Variant("radixMsdParallel", false, false, new ArrayWorkload(
+                (data, metrics) -> RadixSort.parallelMsdRadixSort(
+                        data, 0, data.length - 1, ForkJoinPool.commonPool(), metrics))));
+        variants.add(new Variant("autoSort", false, false, new ArrayWorkload(
+                (data, metrics) -> QuicksortAdvanced.autoSort(data, 0, data.length - 1, metrics))));
+        variants.add(new Variant("naturalMergeSort", false, false, new ListWorkload(
+                NaturalMergeSort::naturalMergeSort)));
+        variants.add(new Variant("bottomUpMergeSort", false, false, new ListWorkload(
+                NaturalMergeSort::bottomUpMergeSort)));
+        variants.add(new Variant("naturalRunMergeSort-list", false, false, new ListWorkload(
+                NaturalMergeSort::naturalRunMergeSort)));
+        variants.add(new Variant("naturalRunMergeSort-packed", false, false, new PackedListWorkload(false)));
+        variants.add(new Variant("naturalRunMergeSort-offheap", false, false, new PackedListWorkload(true)));
+        variants.add(new Variant("naturalRunMergeSort-array", false, false, new ArrayWorkload(
+                (data, metrics) -> NaturalMergeSort.naturalRunMergeSort(data, 0, data.length - 1, metrics))));
+        variants.add(new Variant("Arrays.sort", false, false, new ArrayWorkload(
+                (data, metrics) -> Arrays.sort(data))));
+
+        if (variantFilter == null) {
+            return variants;
+        }
+        List<Variant> selected = new ArrayList<>();
+        for (Variant variant : variants) {
+            for (String prefix : variantFilter) {
+                if (variant.name.startsWith(prefix)) {
+                    selected.add(variant);
+                    break;
+                }
+            }
+        }
+        return selected;
+    }
+
+    private static List<Dataset> loadDatasets() {
+        List<Dataset> datasets = new ArrayList<>();
+        for (String size : new String[]{"50", "1K", "2K", "5K", "10K"}) {
+            for (String distribution : new String[]{"asc", "rev", "ran"}) {
+                File file = new File(dataDir, distribution + size + ".dat");
+                if (file.isFile()) {
+                    int[] data = Quicksort.loadData(file.getPath());
+                    if (data != null && data.length > 0) {
+                        datasets.add(new Dataset(file.getName(), !distribution.equals("ran"), false, data));
+                    }
+                }
+            }
+        }
+        for (int size : sizes) {
+            for (String distribution : distributions) {
+                datasets.add(new Dataset(distribution + "-" + size,
+                        distribution.equals("asc") || distribution.equals("rev"),
+                        distribution.startsWith("dup"), generate(distribution, size)));
+            }
+        }
+        return datasets;
+    }
+
+    // Builds a synthetic input. Random data uses a fixed seed so runs are comparable.
+    static int[] generate(String distribution, int size) {
+        int[] data = new int[size];
+        Random random = new Random(42);
+        if (distribution.startsWith("dup")) {
+            int distinct = Integer.parseInt(distribution.substring(3));
+            for (int i = 0; i < size; i++) {
+                data[i] = random.nextInt(distinct);
+            }
+            return data;
+        }
+        for (int i = 0; i < size; i++) {
+            switch (distribution) {
+                case "asc":
+                    data[i] = i;
+                    break;
+                case "rev":
+                    data[i] = size - i;
+                    break;
+                case "ran":
+                    data[i] = random.nextInt();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown distribution: " + distribution);
+            }
+        }
+        return data;
+    }
+
+    // What one allocatedBytes() call allocates by itself; subtracted from every measurement.
+    private static final long ALLOCATION_PROBE_BYTES = probeOverhead();
+
+    private static long probeOverhead() {
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long before = allocatedBytes();
+            long after = allocatedBytes();
+            overhead = Math.min(overhead, after - before);
+        }
+        return Math.max(0, overhead);
+    }
+
+    // Bytes allocated by this thread so far, or -1 when the JVM does not support it.
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, bean.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, bean.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    private static double standardDeviation(double[] values, double mean) {
+        if (values.length < 2) {
+            return 0;
+        }
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(sum / (values.length - 1));
+    }
+
+    private static void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--data-dir":
+                    dataDir = value;
+                    break;
+                case "--sizes":
+                    sizes = parseInts(value);
+                    break;
+                case "--distributions":
+                    distributions = value.split(",");
+                    break;
+                case "--thresholds":
+                    thresholds = parseInts(value);
+                    break;
+                case "--variants":
+                    variantFilter = value.split(",");
+                    break;
+                case "--warmup":
+                    warmupIterations = Integer.parseInt(value);
+                    break;
+                case "--iterations":
+                    measuredIterations = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--time":
+                    iterationNanos = Long.parseLong(value) * 1_000_000L;
+                    break;
+                case "--quadratic-limit":
+                    quadraticLimit = Integer.parseInt(value);
+                    break;
+                case "--csv":
+                    csvFile = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+    }
+
+    private static int[] parseInts(String value) {
+        if (value.isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = value.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Integer.parseInt(parts[i].trim());
+        }
+        return result;
+    }
+}
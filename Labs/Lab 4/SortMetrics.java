@@ -0,0 +1,41 @@
+// Receives the work done by the sort routines. Every sort entry point takes one of these
+// instead of writing to static counters, so concurrent sorts never share state by accident.
+// Routines count into local variables and report once per partition or merge, so even a
+// real implementation is only called a handful of times per subrange.
+public interface SortMetrics {
+
+    // The phases a sort program goes through, timed separately. MERGE is only used by
+    // ExternalSort, for the passes that merge sorted runs back together.
+    enum Phase { LOAD, SORT, MERGE, SAVE }
+
+    // Discards everything. The methods are empty, so the JIT removes the calls entirely.
+    SortMetrics NONE = new SortMetrics() {
+        @Override
+        public void addComparisons(long count) {
+        }
+
+        @Override
+        public void addExchanges(long count) {
+        }
+
+        @Override
+        public void recordDepth(int depth) {
+        }
+
+        @Override
+        public void addPhaseTime(Phase phase, long nanos) {
+        }
+    };
+
+    // Adds to the number of key comparisons made.
+    void addComparisons(long count);
+
+    // Adds to the number of element exchanges (swaps or moves) made.
+    void addExchanges(long count);
+
+    // Reports the recursion depth reached by a call; implementations keep the maximum.
+    void recordDepth(int depth);
+
+    // Adds wall-clock time spent in a phase.
+    void addPhaseTime(Phase phase, long nanos);
+}
@@ -0,0 +1,129 @@
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Properties;
+
+// Insertion sort thresholds for QuicksortAdvanced.quicksortInsertionThreshold, one per two-way
+// partition kernel. Two values are kept for each kernel: the cutoff below which a range is
+// insertion sorted on the spot, and the cutoff used when small ranges are instead left alone
+// and finished by one insertion pass over the whole array at the end.
+//
+// ThresholdCalibrator measures the values on the host and saves them to a properties file.
+// current() loads that file the first time it is needed, or uses DEFAULT_THRESHOLD when
+// there is none. Only the int two-way kernels are calibrated: introsort, ParallelQuicksort
+// and the long, double, object and index sorts keep their own fixed INSERTION_CUTOFF.
+public class SortThresholds {
+    public static final String DEFAULT_FILE = "sort_thresholds.properties";
+    public static final int DEFAULT_THRESHOLD = 16;
+    // The kernels quicksortInsertionThreshold accepts.
+    static final PartitionStrategy[] KERNELS = {
+            PartitionStrategy.FIRST_PIVOT, PartitionStrategy.MEDIAN_OF_THREE, PartitionStrategy.BLOCK
+    };
+
+    private static volatile SortThresholds current;
+
+    private final int[] insertion = new int[PartitionStrategy.values().length];
+    private final int[] finalPass = new int[PartitionStrategy.values().length];
+
+    public SortThresholds() {
+        Arrays.fill(insertion, DEFAULT_THRESHOLD);
+        Arrays.fill(finalPass, DEFAULT_THRESHOLD);
+    }
+
+    // The thresholds used when no value is passed explicitly.
+    public static SortThresholds current() {
+        SortThresholds thresholds = current;
+        if (thresholds == null) {
+            synchronized (SortThresholds.class) {
+                thresholds = current;
+                if (thresholds == null) {
+                    thresholds = loadOrDefaults(DEFAULT_FILE);
+                    current = thresholds;
+                }
+            }
+        }
+        return thresholds;
+    }
+
+    public static void setCurrent(SortThresholds thresholds) {
+        current = thresholds;
+    }
+
+    // Loads the file if it exists; a missing or unreadable file gives the defaults.
+    public static SortThresholds loadOrDefaults(String fileName) {
+        if (!new File(fileName).isFile()) {
+            return new SortThresholds();
+        }
+        try {
+            return load(fileName);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Warning: could not read " + fileName + ", using default thresholds: " + e.getMessage());
+            return new SortThresholds();
+        }
+    }
+
+    public static SortThresholds load(String fileName) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = new FileReader(fileName)) {
+            properties.load(reader);
+        }
+        SortThresholds thresholds = new SortThresholds();
+        for (PartitionStrategy kernel : KERNELS) {
+            String value = properties.getProperty(insertionKey(kernel));
+            if (value != null) {
+                thresholds.setInsertionThreshold(kernel, Integer.parseInt(value.trim()));
+            }
+            value = properties.getProperty(finalPassKey(kernel));
+            if (value != null) {
+                thresholds.setFinalPassThreshold(kernel, Integer.parseInt(value.trim()));
+            }
+        }
+        return thresholds;
+    }
+
+    public void save(String fileName, String comment) throws IOException {
+        Properties properties = new Properties();
+        for (PartitionStrategy kernel : KERNELS) {
+            properties.setProperty(insertionKey(kernel), Integer.toString(insertionThreshold(kernel)));
+            properties.setProperty(finalPassKey(kernel), Integer.toString(finalPassThreshold(kernel)));
+        }
+        try (Writer writer = new FileWriter(fileName)) {
+            properties.store(writer, comment);
+        }
+    }
+
+    public int insertionThreshold(PartitionStrategy kernel) {
+        return insertion[kernel.ordinal()];
+    }
+
+    public int finalPassThreshold(PartitionStrategy kernel) {
+        return finalPass[kernel.ordinal()];
+    }
+
+    public void setInsertionThreshold(PartitionStrategy kernel, int threshold) {
+        insertion[kernel.ordinal()] = checkThreshold(threshold);
+    }
+
+    public void setFinalPassThreshold(PartitionStrategy kernel, int threshold) {
+        finalPass[kernel.ordinal()] = checkThreshold(threshold);
+    }
+
+    private static int checkThreshold(int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+        }
+        return threshold;
+    }
+
+    private static String insertionKey(PartitionStrategy kernel) {
+        return "insertionThreshold." + kernel;
+    }
+
+    private static String finalPassKey(PartitionStrategy kernel) {
+        return "finalPassThreshold." + kernel;
+    }
+}
@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Random;
+
+// Measures the insertion sort thresholds of QuicksortAdvanced.quicksortInsertionThreshold on
+// this machine and saves them for SortThresholds. For every kernel, with and without the final
+// insertion pass, each candidate threshold sorts the same random array several times; the
+// candidate with the lowest best time wins. Rounds interleave the candidates so a slow patch
+// of machine time does not count against one of them only.
+//
+// Usage: java ThresholdCalibrator [--file name] [--size n] [--candidates t,t,...] [--rounds n]
+//   --file        where to save the thresholds (default: sort_thresholds.properties)
+//   --size        elements per timed sort (default: 200000)
+//   --candidates  thresholds to try (default: 4,8,12,16,24,32,48,64)
+//   --rounds      timed sorts per candidate (default: 5)
+public class ThresholdCalibrator {
+    public static final int DEFAULT_SIZE = 200_000;
+    public static final int[] DEFAULT_CANDIDATES = {4, 8, 12, 16, 24, 32, 48, 64};
+    public static final int DEFAULT_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        String fileName = SortThresholds.DEFAULT_FILE;
+        int size = DEFAULT_SIZE;
+        int[] candidates = DEFAULT_CANDIDATES;
+        int rounds = DEFAULT_ROUNDS;
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--file":
+                    fileName = value;
+                    break;
+                case "--size":
+                    size = Integer.parseInt(value);
+                    break;
+                case "--candidates":
+                    String[] parts = value.split(",");
+                    candidates = new int[parts.length];
+                    for (int k = 0; k < parts.length; k++) {
+                        candidates[k] = Integer.parseInt(parts[k].trim());
+                    }
+                    break;
+                case "--rounds":
+                    rounds = Math.max(1, Integer.parseInt(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+
+        SortThresholds thresholds = calibrate(size, candidates, rounds, System.out);
+        try {
+            thresholds.save(fileName, describeHost());
+            System.out.println("Saved to " + fileName);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Progress is printed to log when it is not null.
+    public static SortThresholds calibrate(int size, int[] candidates, int rounds, PrintStream log) {
+        int[] source = new int[size];
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            source[i] = random.nextInt();
+        }
+        int[] data = new int[size];
+        SortThresholds thresholds = new SortThresholds();
+        for (PartitionStrategy kernel : SortThresholds.KERNELS) {
+            for (boolean finalPass : new boolean[]{false, true}) {
+                long[] best = new long[candidates.length];
+                Arrays.fill(best, Long.MAX_VALUE);
+                // The first round only warms up the JIT and is not counted.
+                for (int round = 0; round <= rounds; round++) {
+                    for (int c = 0; c < candidates.length; c++) {
+                        System.arraycopy(source, 0, data, 0, size);
+                        long start = System.nanoTime();
+                        QuicksortAdvanced.quicksortInsertionThreshold(data, 0, size - 1, candidates[c],
+                                kernel, finalPass, SortMetrics.NONE);
+                        long elapsed = System.nanoTime() - start;
+                        if (round > 0) {
+                            best[c] = Math.min(best[c], elapsed);
+                        }
+                    }
+                }
+                int winner = 0;
+                for (int c = 1; c < candidates.length; c++) {
+                    if (best[c] < best[winner]) {
+                        winner = c;
+                    }
+                }
+                if (finalPass) {
+                    thresholds.setFinalPassThreshold(kernel, candidates[winner]);
+                } else {
+                    thresholds.setInsertionThreshold(kernel, candidates[winner]);
+                }
+                if (log != null) {
+                    log.printf("%-16s %-12s", kernel, finalPass ? "final pass" : "in place");
+                    for (int c = 0; c < candidates.length; c++) {
+                        log.printf(" %d:%.2fms", candidates[c], best[c] / 1e6);
+                    }
+                    log.printf("  -> %d%n", candidates[winner]);
+                }
+            }
+        }
+        return thresholds;
+    }
+
+    private static String describeHost() {
+        return "Insertion sort thresholds measured by ThresholdCalibrator on "
+                + System.getProperty("os.arch") + ", " + Runtime.getRuntime().availableProcessors()
+                + " cores, Java " + System.getProperty("java.version");
+    }
+}
@@ -0,0 +1,6 @@
+@echo off
+rem Compiles the sort programs and runs the benchmark suite. Extra arguments are passed
+rem to SortBenchmark, e.g. run_benchmarks.bat --sizes 1000000,10000000 --csv results.csv
+javac *.java
+java -Xss64m SortBenchmark %*
+pause
@@ -0,0 +1,184 @@
+import java.util.Map;
+
+/**
+ * A prefix expression compiled by ExpressionCompiler into postfix bytecode.
+ * Each instruction is one int: the low bits hold the opcode and, for pushes, the rest
+ * holds the index of the constant or variable. Evaluation walks the code once with a
+ * double stack, so an expression can be evaluated repeatedly without parsing it again.
+ * Instances are immutable and can be shared between threads.
+ */
+public class CompiledExpression {
+
+    static final int PUSH_CONSTANT = 0;
+    static final int PUSH_VARIABLE = 1;
+    static final int ADD = 2;
+    static final int SUBTRACT = 3;
+    static final int MULTIPLY = 4;
+    static final int DIVIDE = 5;
+    static final int POWER = 6;
+
+    /** Bits of an instruction used by the opcode. */
+    static final int OPCODE_BITS = 3;
+    static final int OPCODE_MASK = (1 << OPCODE_BITS) - 1;
+
+    private final String source;
+    private final int[] code;
+    private final double[] constants;
+    private final String[] variables;
+    private final int stackSize;
+
+    /**
+     * Constructor used by ExpressionCompiler.
+     * @param source The prefix expression.
+     * @param code The postfix instructions.
+     * @param constants The values referenced by PUSH_CONSTANT.
+     * @param variables The names referenced by PUSH_VARIABLE, in slot order.
+     * @param stackSize The deepest the evaluation stack gets.
+     */
+    CompiledExpression(String source, int[] code, double[] constants, String[] variables, int stackSize) {
+        this.source = source;
+        this.code = code;
+        this.constants = constants;
+        this.variables = variables;
+        this.stackSize = stackSize;
+    }
+
+    /**
+     * Returns the variable names in slot order; values passed to evaluate use the same order.
+     * @return A copy of the variable names.
+     */
+    public String[] variables() {
+        return variables.clone();
+    }
+
+    /**
+     * Returns the slot of a variable.
+     * @param name The variable name.
+     * @return Its index in the values passed to evaluate, or -1 if the expression does not use it.
+     */
+    public int slot(String name) {
+        for (int i = 0; i < variables.length; i++) {
+            if (variables[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the size a stack passed to evaluate(double[], double[]) needs.
+     * @return The maximum stack depth of the code.
+     */
+    public int stackSize() {
+        return stackSize;
+    }
+
+    /**
+     * Evaluates the expression.
+     * @param values The variable values in slot order.
+     * @return The value of the expression.
+     */
+    public double evaluate(double... values) {
+        return evaluate(values, new double[stackSize]);
+    }
+
+    /**
+     * Evaluates the expression with variables looked up by name.
+     * @param bindings The variable values.
+     * @return The value of the expression.
+     * @throws IllegalArgumentException If a variable has no value.
+     */
+    public double evaluate(Map<String, ? extends Number> bindings) {
+        double[] values = new double[variables.length];
+        for (int i = 0; i < variables.length; i++) {
+            Number value = bindings.get(variables[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("No value for variable " + variables[i]);
+            }
+            values[i] = value.doubleValue();
+        }
+        return evaluate(values);
+    }
+
+    /**
+     * Evaluates the expression using a caller-supplied stack, so repeated evaluation
+     * allocates nothing.
+     * @param values The variable values in slot order.
+     * @param stack Scratch space of at least stackSize() elements.
+     * @return The value of the expression.
+     */
+    public double evaluate(double[] values, double[] stack) {
+        if (values.length < variables.length) {
+            throw new IllegalArgumentException("Expected " + variables.length + " variable values, got "
+                    + values.length);
+        }
+        int top = -1;
+        for (int instruction : code) {
+            switch (instruction & OPCODE_MASK) {
+                case PUSH_CONSTANT:
+                    stack[++top] = constants[instruction >>> OPCODE_BITS];
+                    break;
+                case PUSH_VARIABLE:
+                    stack[++top] = values[instruction >>> OPCODE_BITS];
+                    break;
+                case ADD:
+                    top--;
+                    stack[top] += stack[top + 1];
+                    break;
+                case SUBTRACT:
+                    top--;
+                    stack[top] -= stack[top + 1];
+                    break;
+                case MULTIPLY:
+                    top--;
+                    stack[top] *= stack[top + 1];
+                    break;
+                case DIVIDE:
+                    top--;
+                    stack[top] /= stack[top + 1];
+                    break;
+                default:
+                    top--;
+                    stack[top] = Math.pow(stack[top], stack[top + 1]);
+                    break;
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Returns the prefix expression this was compiled from.
+     * @return The source expression.
+     */
+    public String source() {
+        return source;
+    }
+
+    /**
+     * Returns the postfix form with the tokens separated by spaces.
+     * @return The postfix expression.
+     */
+    @Override
+    public String toString() {
+        StringBuilder postfix = new StringBuilder();
+        for (int instruction : code) {
+            if (postfix.length() > 0) {
+                postfix.append(' ');
+            }
+            int opcode = instruction & OPCODE_MASK;
+            if (opcode == PUSH_CONSTANT) {
+                double value = constants[instruction >>> OPCODE_BITS];
+                if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                    postfix.append((long) value);
+                } else {
+                    postfix.append(value);
+                }
+            } else if (opcode == PUSH_VARIABLE) {
+                postfix.append(variables[instruction >>> OPCODE_BITS]);
+            } else {
+                postfix.append("+-*/$".charAt(opcode - ADD));
+            }
+        }
+        return postfix.toString();
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free stack for several producer and consumer threads (Treiber's algorithm).
+ * The stack is a linked list whose head is swapped with compare-and-set: a thread builds
+ * its change against the head it read and retries if another thread changed the head in
+ * the meantime. Nodes are never reused, so a head that compares equal really is the node
+ * that was read and the ABA problem cannot occur.
+ * @param <T> The type of the stack elements.
+ */
+public class ConcurrentStack<T> {
+
+    /**
+     * One element and the node below it.
+     * @param <T> The type of the element.
+     */
+    private static final class Node<T> {
+        final T value;
+        Node<T> next;
+
+        Node(T value) {
+            this.value = value;
+        }
+    }
+
+    private final AtomicReference<Node<T>> head = new AtomicReference<>();
+
+    /**
+     * Pushes a value onto the stack.
+     * @param value The value to be pushed onto the stack.
+     */
+    public void push(T value) {
+        Node<T> node = new Node<>(value);
+        Node<T> current;
+        do {
+            current = head.get();
+            node.next = current;
+        } while (!head.compareAndSet(current, node));
+    }
+
+    /**
+     * Pushes values[offset..offset+count-1] onto the stack with a single compare-and-set, so
+     * other threads see either none or all of them. The last value ends up on top.
+     * @param values The values to be pushed.
+     * @param offset Index of the first value.
+     * @param count Number of values.
+     */
+    public void pushAll(T[] values, int offset, int count) {
+        if (count == 0) {
+            return;
+        }
+        Node<T> bottom = new Node<>(values[offset]);
+        Node<T> top = bottom;
+        for (int i = offset + 1; i < offset + count; i++) {
+            Node<T> node = new Node<>(values[i]);
+            node.next = top;
+            top = node;
+        }
+        Node<T> current;
+        do {
+            current = head.get();
+            bottom.next = current;
+        } while (!head.compareAndSet(current, top));
+    }
+
+    /**
+     * Pops a value from the stack.
+     * @return The value popped from the stack, or null if the stack is empty.
+     */
+    public T pop() {
+        Node<T> current;
+        do {
+            current = head.get();
+            if (current == null) {
+                return null;
+            }
+        } while (!head.compareAndSet(current, current.next));
+        return current.value;
+    }
+
+    /**
+     * Removes every value with a single swap of the head, so values pushed concurrently are
+     * either all taken or left for the next call.
+     * @return The removed values in a Stack, in the same order; its top is the old top.
+     */
+    @SuppressWarnings("unchecked")
+    public Stack<T> popAll() {
+        Node<T> first = head.getAndSet(null);
+        int count = 0;
+        for (Node<T> node = first; node != null; node = node.next) {
+            count++;
+        }
+        T[] values = (T[]) new Object[count];
+        int i = count;
+        for (Node<T> node = first; node != null; node = node.next) {
+            values[--i] = node.value;
+        }
+        Stack<T> stack = new Stack<>(count);
+        stack.pushAll(values, 0, count);
+        return stack;
+    }
+
+    /**
+     * Peeks at the top value of the stack without removing it.
+     * @return The top value of the stack, or null if the stack is empty.
+     */
+    public T peek() {
+        Node<T> current = head.get();
+        return current == null ? null : current.value;
+    }
+
+    /**
+     * Checks if the stack is empty.
+     * @return True if the stack is empty, otherwise false.
+     */
+    public boolean isEmpty() {
+        return head.get() == null;
+    }
+}
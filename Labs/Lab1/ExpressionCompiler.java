@@ -0,0 +1,218 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles prefix expressions with numbers and multi-character identifiers into
+ * CompiledExpression bytecode. The expression is tokenized with PrefixTokenizer, checked
+ * right to left with an operand counter the way PrefixToPostfix.convert checks its stack,
+ * and then emitted in postfix order left to right: operands are written as they are read
+ * and operators wait on an IntStack until both of their operands are complete.
+ * Compiled expressions are cached by their text, so looking up the same expression again
+ * costs one hash lookup instead of a parse.
+ */
+public class ExpressionCompiler {
+
+    /** The cache is emptied when it grows past this many expressions. */
+    static final int MAX_CACHE_SIZE = 10_000;
+
+    private static final Map<String, CompiledExpression> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the compiled form of a prefix expression, compiling it on first use.
+     * @param prefix The prefix expression.
+     * @return The compiled expression.
+     * @throws IllegalArgumentException If the expression is invalid.
+     */
+    public static CompiledExpression compile(String prefix) {
+        CompiledExpression compiled = CACHE.get(prefix);
+        if (compiled == null) {
+            compiled = compileUncached(prefix);
+            if (CACHE.size() >= MAX_CACHE_SIZE) {
+                CACHE.clear();
+            }
+            CACHE.putIfAbsent(prefix, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Removes every cached expression.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    /**
+     * Compiles a prefix expression without consulting or filling the cache.
+     * @param prefix The prefix expression.
+     * @return The compiled expression.
+     * @throws IllegalArgumentException If the expression contains an invalid character or token,
+     *                                  or is not a valid prefix expression.
+     */
+    public static CompiledExpression compileUncached(String prefix) {
+        // A token is at least one character, so there are at most as many tokens as characters
+        int[] types = new int[prefix.length()];
+        int tokens = 0;
+        PrefixTokenizer tokenizer = new PrefixTokenizer(prefix);
+        int type;
+        while ((type = tokenizer.next()) != PrefixTokenizer.END) {
+            types[tokens++] = type;
+        }
+
+        // Check from the right, counting the operands a stack would hold
+        int operands = 0;
+        for (int i = tokens - 1; i >= 0; i--) {
+            if (types[i] == PrefixTokenizer.OPERATOR) {
+                if (operands < 2) {
+                    throw new IllegalArgumentException("Invalid Prefix Expression");
+                }
+                operands--;
+            } else {
+                operands++;
+            }
+        }
+        if (operands != 1) {
+            throw new IllegalArgumentException("Invalid Prefix Expression");
+        }
+
+        int[] code = new int[tokens];
+        double[] constants = new double[tokens];
+        int constantCount = 0;
+        Map<String, Integer> slots = new LinkedHashMap<>();
+        // Waiting operators as opcodes; the complement marks one whose first operand is complete
+        IntStack operators = new IntStack();
+        int written = 0;
+        int depth = 0;
+        int maxDepth = 0;
+        tokenizer = new PrefixTokenizer(prefix);
+        for (int i = 0; i < tokens; i++) {
+            tokenizer.next();
+            if (types[i] == PrefixTokenizer.OPERATOR) {
+                operators.push(opcode(tokenizer.operator()));
+                continue;
+            }
+            if (types[i] == PrefixTokenizer.NUMBER) {
+                constants[constantCount] = tokenizer.number();
+                code[written++] = CompiledExpression.PUSH_CONSTANT
+                        | constantCount++ << CompiledExpression.OPCODE_BITS;
+            } else {
+                String name = tokenizer.text();
+                Integer slot = slots.get(name);
+                if (slot == null) {
+                    slot = slots.size();
+                    slots.put(name, slot);
+                }
+                code[written++] = CompiledExpression.PUSH_VARIABLE | slot << CompiledExpression.OPCODE_BITS;
+            }
+            maxDepth = Math.max(maxDepth, ++depth);
+            // The operand completes every operator that was waiting on its second operand
+            while (!operators.isEmpty() && operators.peek() < 0) {
+                code[written++] = ~operators.pop();
+                depth--;
+            }
+            if (!operators.isEmpty()) {
+                operators.push(~operators.pop());
+            }
+        }
+        return new CompiledExpression(prefix, code, Arrays.copyOf(constants, constantCount),
+                slots.keySet().toArray(new String[0]), maxDepth);
+    }
+
+    /**
+     * Maps an operator character to its opcode.
+     * @param operator One of + - * / $.
+     * @return The opcode.
+     */
+    private static int opcode(char operator) {
+        switch (operator) {
+            case '+':
+                return CompiledExpression.ADD;
+            case '-':
+                return CompiledExpression.SUBTRACT;
+            case '*':
+                return CompiledExpression.MULTIPLY;
+            case '/':
+                return CompiledExpression.DIVIDE;
+            default:
+                return CompiledExpression.POWER;
+        }
+    }
+
+    /**
+     * Compiles and evaluates every expression in a file.
+     * Each line is printed with its postfix form and value, or with its error; variables
+     * without a binding are an error.
+     * @param args The input file name, followed by name=value bindings and optionally
+     *             --repeat n to time n evaluations of every valid expression.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: java ExpressionCompiler <inputFileName> [name=value ...] [--repeat n]");
+            return;
+        }
+        Map<String, Double> bindings = new HashMap<>();
+        int repeat = 0;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--repeat")) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for --repeat");
+                }
+                repeat = Integer.parseInt(args[++i]);
+                continue;
+            }
+            int equals = args[i].indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Expected name=value: " + args[i]);
+            }
+            bindings.put(args[i].substring(0, equals), Double.parseDouble(args[i].substring(equals + 1)));
+        }
+
+        try (BufferedReader br = new BufferedReader(new FileReader(args[0]))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String prefix = line.trim();
+                try {
+                    CompiledExpression expression = compile(prefix);
+                    double value = expression.evaluate(bindings);
+                    System.out.println(prefix + " -> " + expression + " = " + value);
+                    if (repeat > 0) {
+                        timeEvaluations(expression, bindings, repeat);
+                    }
+                } catch (IllegalArgumentException e) {
+                    System.out.println(prefix + " -> Error: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Evaluates an expression repeatedly with one reused stack and prints the time per evaluation.
+     * @param expression The compiled expression.
+     * @param bindings The variable values.
+     * @param repeat Number of evaluations.
+     */
+    private static void timeEvaluations(CompiledExpression expression, Map<String, Double> bindings, int repeat) {
+        String[] names = expression.variables();
+        double[] values = new double[names.length];
+        for (int i = 0; i < names.length; i++) {
+            values[i] = bindings.get(names[i]);
+        }
+        double[] stack = new double[expression.stackSize()];
+        double sum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            sum += expression.evaluate(values, stack);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("    %d evaluations, %.1f ns each (checksum %s)%n",
+                repeat, (double) elapsed / repeat, sum);
+    }
+}
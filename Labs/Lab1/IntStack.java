@@ -0,0 +1,129 @@
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+ * Stack of int values, the primitive counterpart of Stack.
+ * The values are stored unboxed in an array that grows as needed;
+ * popping or peeking an empty stack throws EmptyStackException.
+ */
+public class IntStack {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] stackArray;
+    private int top;
+
+    /**
+     * Constructor to initialize an empty stack with the default capacity.
+     */
+    public IntStack() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor to initialize the stack with a specified initial size.
+     * The stack grows beyond it when needed.
+     * @param size Initial capacity of the stack.
+     */
+    public IntStack(int size) {
+        stackArray = new int[Math.max(size, 1)];
+        top = -1;
+    }
+
+    /**
+     * Pushes a value onto the stack.
+     * @param value The value to be pushed onto the stack.
+     */
+    public void push(int value) {
+        if (top + 1 == stackArray.length) {
+            grow(top + 2);
+        }
+        stackArray[++top] = value;
+    }
+
+    /**
+     * Pushes values[offset..offset+count-1] onto the stack in order, so the last one ends up on top.
+     * @param values The values to be pushed.
+     * @param offset Index of the first value.
+     * @param count Number of values.
+     */
+    public void pushAll(int[] values, int offset, int count) {
+        if (top + 1 + count > stackArray.length) {
+            grow(top + 1 + count);
+        }
+        System.arraycopy(values, offset, stackArray, top + 1, count);
+        top += count;
+    }
+
+    /**
+     * Pops a value from the stack.
+     * @return The value popped from the stack.
+     * @throws EmptyStackException If the stack is empty.
+     */
+    public int pop() {
+        if (top < 0) {
+            throw new EmptyStackException();
+        }
+        return stackArray[top--];
+    }
+
+    /**
+     * Pops count values into target[offset..offset+count-1]. The values keep their stack order,
+     * so the old top ends up at the highest index, and pushAll with the same range restores them.
+     * @param target Where the values are stored.
+     * @param offset Index of the first stored value.
+     * @param count Number of values to pop.
+     * @throws EmptyStackException If the stack holds fewer than count values.
+     */
+    public void popAll(int[] target, int offset, int count) {
+        if (count > top + 1) {
+            throw new EmptyStackException();
+        }
+        int first = top + 1 - count;
+        System.arraycopy(stackArray, first, target, offset, count);
+        top = first - 1;
+    }
+
+    /**
+     * Peeks at the top value of the stack without removing it.
+     * @return The top value of the stack.
+     * @throws EmptyStackException If the stack is empty.
+     */
+    public int peek() {
+        if (top < 0) {
+            throw new EmptyStackException();
+        }
+        return stackArray[top];
+    }
+
+    /**
+     * Checks if the stack is empty.
+     * @return True if the stack is empty, otherwise false.
+     */
+    public boolean isEmpty() {
+        return (top == -1);
+    }
+
+    /**
+     * Returns the current size of the stack.
+     * @return The number of elements in the stack.
+     */
+    public int size() {
+        return top + 1;
+    }
+
+    /**
+     * Removes all values, keeping the capacity.
+     */
+    public void clear() {
+        top = -1;
+    }
+
+    /**
+     * Grows the array to at least the given capacity, at least doubling it so pushes stay
+     * amortized constant time.
+     * @param capacity The capacity needed.
+     */
+    private void grow(int capacity) {
+        stackArray = Arrays.copyOf(stackArray, Math.max(capacity, 2 * stackArray.length));
+    }
+}
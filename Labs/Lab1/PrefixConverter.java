@@ -0,0 +1,118 @@
+/**
+ * Converts prefix expressions to postfix in linear time without building intermediate
+ * strings. PrefixToPostfix.convert concatenates the two operand strings at every operator,
+ * which copies the same characters once per level of nesting; here every character is
+ * copied once, into an output buffer that is reused from one expression to the next.
+ *
+ * The conversion takes two passes. The first scans the expression from right to left like
+ * PrefixToPostfix.convert, but only counts the operands that would be on its stack, so it
+ * finds the same error at the same position and reports it with the same message. The second
+ * pass runs left to right over a valid expression: operands are copied straight to the
+ * output, and operators wait on a stack until both of their operands have been written.
+ *
+ * An instance keeps its buffers between calls and is not thread-safe; use one per thread.
+ */
+public class PrefixConverter {
+
+    /** Message for an operator without two operands, or operands left over at the end. */
+    public static final String INVALID_EXPRESSION = "Error: Invalid Prefix Expression";
+
+    /** Prefix of the message for a character that is neither an operand, operator nor space. */
+    public static final String INVALID_CHARACTER = "Error: Invalid Character in Expression: ";
+
+    private char[] output = new char[64];
+
+    /**
+     * Operators waiting for operands. An operator is pushed as its character and replaced by
+     * its complement (a negative value) once its first operand is complete.
+     */
+    private final IntStack operators = new IntStack(64);
+
+    /**
+     * Converts a prefix expression to a postfix expression.
+     * @param prefix The prefix expression to be converted.
+     * @return The corresponding postfix expression or an error message if the input is invalid,
+     *         exactly as returned by PrefixToPostfix.convert.
+     */
+    public String convert(CharSequence prefix) {
+        String error = validate(prefix);
+        if (error != null) {
+            return error;
+        }
+        int length = emit(prefix);
+        return new String(output, 0, length);
+    }
+
+    /**
+     * Converts a prefix expression and appends the result, or the error message, to out.
+     * Nothing is allocated apart from what out needs to grow.
+     * @param prefix The prefix expression to be converted.
+     * @param out Where the postfix expression or error message is appended.
+     */
+    public void convertTo(CharSequence prefix, StringBuilder out) {
+        String error = validate(prefix);
+        if (error != null) {
+            out.append(error);
+            return;
+        }
+        int length = emit(prefix);
+        out.append(output, 0, length);
+    }
+
+    /**
+     * Checks the expression from right to left, counting the operands an operand stack would
+     * hold, and returns the first error PrefixToPostfix.convert would report.
+     * @param prefix The prefix expression to check.
+     * @return The error message, or null if the expression is valid.
+     */
+    private static String validate(CharSequence prefix) {
+        int operands = 0;
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            char c = prefix.charAt(i);
+            if (PrefixToPostfix.isOperator(c)) {
+                // Pops two operands and pushes their combination
+                if (operands < 2) {
+                    return INVALID_EXPRESSION;
+                }
+                operands--;
+            } else if (Character.isLetter(c)) {
+                operands++;
+            } else if (c != ' ') {
+                return INVALID_CHARACTER + c;
+            }
+        }
+        return operands == 1 ? null : INVALID_EXPRESSION;
+    }
+
+    /**
+     * Writes the postfix form of a valid expression to the output buffer.
+     * When an operand finishes, the operators it completes are popped and written after it.
+     * @param prefix A prefix expression that passed validate.
+     * @return The number of characters written to the output buffer.
+     */
+    private int emit(CharSequence prefix) {
+        int length = prefix.length();
+        if (output.length < length) {
+            // The output is never longer than the input
+            output = new char[Math.max(length, 2 * output.length)];
+        }
+        operators.clear();
+        int written = 0;
+        for (int i = 0; i < length; i++) {
+            char c = prefix.charAt(i);
+            if (PrefixToPostfix.isOperator(c)) {
+                operators.push(c);
+            } else if (c != ' ') {
+                output[written++] = c;
+                // The operand completes every operator that was waiting on its second operand
+                while (!operators.isEmpty() && operators.peek() < 0) {
+                    output[written++] = (char) ~operators.pop();
+                }
+                if (!operators.isEmpty()) {
+                    operators.push(~operators.pop());
+                }
+            }
+        }
+        return written;
+    }
+}
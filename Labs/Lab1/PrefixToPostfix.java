@@ -1,4 +1,11 @@
 import java.io.*;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This class contains the main program to convert prefix expressions to postfix expressions.
@@ -6,6 +13,12 @@ import java.io.*;
  */
 public class PrefixToPostfix {
 
+    /** Lines converted per task in the parallel mode. */
+    private static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    /** Size of the input and output buffers. */
+    private static final int IO_BUFFER_SIZE = 1 << 20;
+
     /**
      * Checks if a character is a valid operator.
      * @param c The character to check.
@@ -15,20 +28,54 @@ public class PrefixToPostfix {
         return (c == '+' || c == '-' || c == '*' || c == '/' || c == '$');
     }
 
+    /** One converter per thread, so its buffers are reused across calls to convert. */
+    private static final ThreadLocal<PrefixConverter> CONVERTER = ThreadLocal.withInitial(PrefixConverter::new);
+
     /**
-     * Converts a prefix expression to a postfix expression using a stack.
-     * This method processes the expression character by character in reverse order.
+     * Converts a prefix expression to a postfix expression in linear time with PrefixConverter.
      * @param prefix The prefix expression to be converted.
      * @return The corresponding postfix expression or an error message if the input is invalid.
      */
     public static String convert(String prefix) {
-        Stack stack = new Stack(prefix.length());
-        System.out.println("Converting: " + prefix);  // Debugging line
+        return CONVERTER.get().convert(prefix);
+    }
+
+    /**
+     * Converts a prefix expression whose operands are numbers or multi-character identifiers,
+     * separated by spaces where two operands meet (for example "+ rate * 2.5 hours").
+     * @param prefix The prefix expression to be converted.
+     * @return The postfix expression with its tokens separated by spaces, or an error message
+     *         if the input is invalid.
+     */
+    public static String convertTokens(String prefix) {
+        try {
+            return ExpressionCompiler.compileUncached(prefix).toString();
+        } catch (IllegalArgumentException e) {
+            return "Error: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Converts a prefix expression to a postfix expression using a stack, optionally tracing
+     * every step. This method processes the expression character by character in reverse order.
+     * The trace goes to System.out and costs far more than the conversion itself, so it is
+     * only meant for debugging a few expressions.
+     * @param prefix The prefix expression to be converted.
+     * @param verbose True to print each character as it is processed.
+     * @return The corresponding postfix expression or an error message if the input is invalid.
+     */
+    public static String convert(String prefix, boolean verbose) {
+        Stack<String> stack = new Stack<>(prefix.length());
+        if (verbose) {
+            System.out.println("Converting: " + prefix);  // Debugging line
+        }
 
         // Read prefix in reverse order, character by character
         for (int i = prefix.length() - 1; i >= 0; i--) {
             char c = prefix.charAt(i);
-            System.out.println("Processing: " + c);  // Debugging line
+            if (verbose) {
+                System.out.println("Processing: " + c);  // Debugging line
+            }
 
             if (isOperator(c)) {
                 // Ensure there are at least two operands for each operator
@@ -61,32 +108,170 @@ public class PrefixToPostfix {
     /**
      * The main method to read input from a file, convert each prefix expression to postfix,
      * and write the results to an output file.
-     * @param args Command line arguments for input and output file names.
+     * Lines are read in chunks and the chunks are converted in parallel; the results are
+     * written in input order, and only a few chunks are held in memory at a time, so input
+     * files of any size can be streamed through.
+     * @param args Input and output file names, followed by the options
+     *             -v (print every conversion step; converts on one thread),
+     *             -t (numbers and multi-character identifiers, see convertTokens),
+     *             --threads n (default: number of cores) and
+     *             --chunk n (lines per chunk, default: 4096).
      */
     public static void main(String[] args) {
-        if (args.length != 2) {
-            System.out.println("Usage: java PrefixToPostfix <inputFileName> <outputFileName>");
+        if (args.length < 2) {
+            System.out.println("Usage: java PrefixToPostfix <inputFileName> <outputFileName>"
+                    + " [-v] [-t] [--threads n] [--chunk n]");
             return;
         }
 
         String inputFileName = args[0];
         String outputFileName = args[1];
-
-        try (BufferedReader br = new BufferedReader(new FileReader(inputFileName));
-             BufferedWriter bw = new BufferedWriter(new FileWriter(outputFileName))) {
-
-            String line;
-            while ((line = br.readLine()) != null) {
-                // Process each line from the input file
-                String postfix = convert(line.trim());
-                System.out.println("Prefix: " + line.trim() + " -> Postfix: " + postfix);  // Debugging line
-                // Write the converted expression to the output file
-                bw.write(postfix);
-                bw.newLine();
+        boolean verbose = false;
+        boolean tokens = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunkSize = DEFAULT_CHUNK_SIZE;
+        for (int i = 2; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("-v") || option.equals("--verbose")) {
+                verbose = true;
+                continue;
+            }
+            if (option.equals("-t") || option.equals("--tokens")) {
+                tokens = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--threads":
+                    threads = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--chunk":
+                    chunkSize = Math.max(1, Integer.parseInt(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + option);
             }
+        }
 
+        try (BufferedReader br = new BufferedReader(new FileReader(inputFileName), IO_BUFFER_SIZE);
+             BufferedWriter bw = new BufferedWriter(new FileWriter(outputFileName), IO_BUFFER_SIZE)) {
+            if (verbose) {
+                convertSerial(br, bw, tokens);
+            } else {
+                convertParallel(br, bw, threads, chunkSize, tokens);
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Converts line by line on the calling thread, printing every step.
+     * @param br The input expressions.
+     * @param bw Where the postfix expressions are written.
+     * @param tokens True to convert with convertTokens, which prints no steps.
+     * @throws IOException If reading or writing fails.
+     */
+    private static void convertSerial(BufferedReader br, BufferedWriter bw, boolean tokens) throws IOException {
+        String line;
+        while ((line = br.readLine()) != null) {
+            // Process each line from the input file
+            String postfix = tokens ? convertTokens(line.trim()) : convert(line.trim(), true);
+            System.out.println("Prefix: " + line.trim() + " -> Postfix: " + postfix);  // Debugging line
+            // Write the converted expression to the output file
+            bw.write(postfix);
+            bw.newLine();
+        }
+    }
+
+    /**
+     * Reads chunks of lines and converts them on a thread pool. Pending chunks are kept in a
+     * queue in the order they were read and written out from its head, which preserves the
+     * input order; once the queue is full, reading waits for the oldest chunk to finish.
+     * @param br The input expressions.
+     * @param bw Where the postfix expressions are written.
+     * @param threads Number of conversion threads.
+     * @param chunkSize Lines per chunk.
+     * @param tokens True to convert with convertTokens.
+     * @throws IOException If reading or writing fails.
+     */
+    private static void convertParallel(BufferedReader br, BufferedWriter bw, int threads, int chunkSize,
+                                        boolean tokens) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Deque<Future<String[]>> pending = new ArrayDeque<>();
+        int maxPending = 2 * threads;
+        try {
+            while (true) {
+                String[] chunk = readChunk(br, chunkSize);
+                if (chunk.length == 0) {
+                    break;
+                }
+                if (pending.size() >= maxPending) {
+                    writeChunk(pending.removeFirst(), bw);
+                }
+                pending.addLast(pool.submit(() -> convertChunk(chunk, tokens)));
+            }
+            while (!pending.isEmpty()) {
+                writeChunk(pending.removeFirst(), bw);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads up to chunkSize lines.
+     * @param br The input expressions.
+     * @param chunkSize Maximum number of lines to read.
+     * @return The lines read; empty at the end of the input.
+     * @throws IOException If reading fails.
+     */
+    private static String[] readChunk(BufferedReader br, int chunkSize) throws IOException {
+        String[] lines = new String[chunkSize];
+        int count = 0;
+        String line;
+        while (count < chunkSize && (line = br.readLine()) != null) {
+            lines[count++] = line;
+        }
+        return count == chunkSize ? lines : Arrays.copyOf(lines, count);
+    }
+
+    /**
+     * Converts every line of a chunk, replacing the lines with their postfix forms.
+     * @param lines The prefix expressions.
+     * @param tokens True to convert with convertTokens.
+     * @return The same array, now holding the postfix expressions.
+     */
+    private static String[] convertChunk(String[] lines, boolean tokens) {
+        PrefixConverter converter = CONVERTER.get();
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = tokens ? convertTokens(lines[i].trim()) : converter.convert(lines[i].trim());
+        }
+        return lines;
+    }
+
+    /**
+     * Waits for a converted chunk and writes it.
+     * @param chunk The pending conversion.
+     * @param bw Where the postfix expressions are written.
+     * @throws IOException If writing fails or the conversion was interrupted.
+     */
+    private static void writeChunk(Future<String[]> chunk, BufferedWriter bw) throws IOException {
+        String[] lines;
+        try {
+            lines = chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while converting");
+        } catch (ExecutionException e) {
+            throw new IOException("Conversion failed", e.getCause());
+        }
+        for (String postfix : lines) {
+            bw.write(postfix);
+            bw.newLine();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * Splits a prefix expression into numbers, identifiers and operators.
+ * Operators are the single characters + - * / $ and need no spaces around them; numbers
+ * and identifiers are runs of letters, digits, '_' and '.' and must be separated from each
+ * other by spaces. A number is digits with an optional fraction (12, 3.5, .25) and an
+ * identifier starts with a letter or '_' followed by letters, digits or '_'.
+ * Tokens are reported as spans of the input, so scanning allocates nothing.
+ */
+public class PrefixTokenizer {
+
+    /** No more tokens. */
+    public static final int END = 0;
+
+    /** A numeric literal. */
+    public static final int NUMBER = 1;
+
+    /** A variable name. */
+    public static final int IDENTIFIER = 2;
+
+    /** One of the operators + - * / $. */
+    public static final int OPERATOR = 3;
+
+    private final CharSequence text;
+    private int position;
+    private int start;
+    private int end;
+
+    /**
+     * Constructor to tokenize the given expression from the beginning.
+     * @param text The prefix expression.
+     */
+    public PrefixTokenizer(CharSequence text) {
+        this.text = text;
+    }
+
+    /**
+     * Advances to the next token.
+     * @return The type of the token, or END when the expression is exhausted.
+     * @throws IllegalArgumentException If the next token is not a valid number, identifier or operator.
+     */
+    public int next() {
+        int length = text.length();
+        while (position < length && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+        start = position;
+        if (position == length) {
+            end = position;
+            return END;
+        }
+        char c = text.charAt(position);
+        if (PrefixToPostfix.isOperator(c)) {
+            end = ++position;
+            return OPERATOR;
+        }
+        if (!isWordCharacter(c)) {
+            throw new IllegalArgumentException("Invalid Character in Expression: " + c);
+        }
+        while (position < length && isWordCharacter(text.charAt(position))) {
+            position++;
+        }
+        end = position;
+        if (isNumber()) {
+            return NUMBER;
+        }
+        if (isIdentifier()) {
+            return IDENTIFIER;
+        }
+        throw new IllegalArgumentException("Invalid Token in Expression: " + text());
+    }
+
+    /**
+     * Returns the index of the first character of the current token.
+     * @return The start of the token span.
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * Returns the index after the last character of the current token.
+     * @return The end of the token span.
+     */
+    public int end() {
+        return end;
+    }
+
+    /**
+     * Returns the current token as a string.
+     * @return The token text.
+     */
+    public String text() {
+        return text.subSequence(start, end).toString();
+    }
+
+    /**
+     * Returns the current token as an operator character.
+     * @return The operator; only meaningful when next returned OPERATOR.
+     */
+    public char operator() {
+        return text.charAt(start);
+    }
+
+    /**
+     * Returns the value of the current token.
+     * @return The number; only meaningful when next returned NUMBER.
+     */
+    public double number() {
+        return Double.parseDouble(text());
+    }
+
+    /**
+     * Checks if a character can be part of a number or identifier.
+     * @param c The character to check.
+     * @return True for letters, digits, '_' and '.'.
+     */
+    private static boolean isWordCharacter(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+    }
+
+    /**
+     * Checks if the current span is digits with at most one '.' and at least one digit.
+     * @return True if the span is a number.
+     */
+    private boolean isNumber() {
+        boolean digits = false;
+        boolean point = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                return false;
+            }
+        }
+        return digits;
+    }
+
+    /**
+     * Checks if the current span starts with a letter or '_' and contains no '.'.
+     * @return True if the span is an identifier.
+     */
+    private boolean isIdentifier() {
+        char first = text.charAt(start);
+        if (!Character.isLetter(first) && first != '_') {
+            return false;
+        }
+        for (int i = start + 1; i < end; i++) {
+            if (text.charAt(i) == '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
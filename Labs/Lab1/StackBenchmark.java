@@ -0,0 +1,225 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntSupplier;
+
+/**
+ * Compares the stacks of this lab with java.util.ArrayDeque.
+ * Each case pushes a number of values and pops them again; the first rounds warm up the JIT
+ * and are not counted, and the best of the remaining rounds is reported in nanoseconds per
+ * push/pop pair. The concurrent cases run the same loop on several threads at once against
+ * one shared stack.
+ * Usage: java StackBenchmark [--size n] [--rounds n] [--threads n]
+ */
+public class StackBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+
+    /** Keeps the popped values alive so the JIT cannot drop the loops. */
+    private static volatile long sink;
+
+    /**
+     * The main method to run every case and print the results.
+     * @param args Command line options, see the class comment.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int size = 1_000_000;
+        int rounds = 10;
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--size":
+                    size = Integer.parseInt(value);
+                    break;
+                case "--rounds":
+                    rounds = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--threads":
+                    threads = Math.max(1, Integer.parseInt(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+        final int n = size;
+
+        System.out.printf("Single thread, %d pushes then %d pops%n", n, n);
+        report("IntStack", n, rounds, () -> {
+            IntStack stack = new IntStack();
+            for (int i = 0; i < n; i++) {
+                stack.push(i);
+            }
+            int sum = 0;
+            while (!stack.isEmpty()) {
+                sum += stack.pop();
+            }
+            return sum;
+        });
+        report("CharStack", n, rounds, () -> {
+            CharStack stack = new CharStack();
+            for (int i = 0; i < n; i++) {
+                stack.push((char) i);
+            }
+            int sum = 0;
+            while (!stack.isEmpty()) {
+                sum += stack.pop();
+            }
+            return sum;
+        });
+        report("Stack<Integer>", n, rounds, () -> {
+            Stack<Integer> stack = new Stack<>();
+            for (int i = 0; i < n; i++) {
+                stack.push(i);
+            }
+            int sum = 0;
+            while (!stack.isEmpty()) {
+                sum += stack.pop();
+            }
+            return sum;
+        });
+        report("ArrayDeque<Integer>", n, rounds, () -> {
+            ArrayDeque<Integer> stack = new ArrayDeque<>();
+            for (int i = 0; i < n; i++) {
+                stack.push(i);
+            }
+            int sum = 0;
+            while (!stack.isEmpty()) {
+                sum += stack.pop();
+            }
+            return sum;
+        });
+        report("ArrayDeque<Character>", n, rounds, () -> {
+            ArrayDeque<Character> stack = new ArrayDeque<>();
+            for (int i = 0; i < n; i++) {
+                stack.push((char) i);
+            }
+            int sum = 0;
+            while (!stack.isEmpty()) {
+                sum += stack.pop();
+            }
+            return sum;
+        });
+
+        final int perThread = Math.max(1, n / threads);
+        System.out.printf("%n%d threads, each alternating %d pushes and pops on a shared stack%n",
+                threads, perThread);
+        reportConcurrent("ConcurrentStack<Integer>", threads, perThread, rounds, () -> {
+            ConcurrentStack<Integer> stack = new ConcurrentStack<>();
+            return () -> {
+                int sum = 0;
+                for (int i = 0; i < perThread; i++) {
+                    stack.push(i);
+                    Integer value = stack.pop();
+                    sum += value == null ? 0 : value;
+                }
+                return sum;
+            };
+        });
+        reportConcurrent("ConcurrentLinkedDeque<Integer>", threads, perThread, rounds, () -> {
+            ConcurrentLinkedDeque<Integer> stack = new ConcurrentLinkedDeque<>();
+            return () -> {
+                int sum = 0;
+                for (int i = 0; i < perThread; i++) {
+                    stack.push(i);
+                    Integer value = stack.pollFirst();
+                    sum += value == null ? 0 : value;
+                }
+                return sum;
+            };
+        });
+        reportConcurrent("synchronized ArrayDeque<Integer>", threads, perThread, rounds, () -> {
+            ArrayDeque<Integer> stack = new ArrayDeque<>();
+            return () -> {
+                int sum = 0;
+                for (int i = 0; i < perThread; i++) {
+                    Integer value;
+                    synchronized (stack) {
+                        stack.push(i);
+                        value = stack.pollFirst();
+                    }
+                    sum += value == null ? 0 : value;
+                }
+                return sum;
+            };
+        });
+    }
+
+    /**
+     * Runs one single-threaded case and prints its best time per push/pop pair.
+     * @param name The name printed for the case.
+     * @param operations Push/pop pairs per run.
+     * @param rounds Counted runs.
+     * @param body One run; returns a value derived from the popped values.
+     */
+    private static void report(String name, int operations, int rounds, IntSupplier body) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + rounds; round++) {
+            long start = System.nanoTime();
+            sink += body.getAsInt();
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        System.out.printf("  %-34s %8.2f ns/op%n", name, (double) best / operations);
+    }
+
+    /**
+     * Creates the loops of one concurrent run.
+     */
+    private interface SharedCase {
+        /**
+         * Creates a new shared stack and returns the loop every thread runs against it.
+         * @return The per-thread loop.
+         */
+        IntSupplier create();
+    }
+
+    /**
+     * Runs one concurrent case and prints its best time per push/pop pair over all threads.
+     * @param name The name printed for the case.
+     * @param threads Number of threads sharing the stack.
+     * @param perThread Push/pop pairs per thread.
+     * @param rounds Counted runs.
+     * @param sharedCase Creates the shared stack and the per-thread loop for each run.
+     * @throws InterruptedException If interrupted while waiting for the threads.
+     */
+    private static void reportConcurrent(String name, int threads, int perThread, int rounds,
+                                         SharedCase sharedCase) throws InterruptedException {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + rounds; round++) {
+            IntSupplier body = sharedCase.create();
+            CountDownLatch ready = new CountDownLatch(threads);
+            CountDownLatch go = new CountDownLatch(1);
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    ready.countDown();
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    sink += body.getAsInt();
+                });
+                workers[t].start();
+            }
+            ready.await();
+            long start = System.nanoTime();
+            go.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        System.out.printf("  %-34s %8.2f ns/op%n", name, (double) best / ((long) threads * perThread));
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads bits written by BitWriter from an InputStream, most significant bit first.
+ * Bytes are read through an internal buffer into a long accumulator, so reading a bit
+ * is a shift and a mask in the common case. The reader reads ahead, so the stream should
+ * not be used directly once bits have been read from it.
+ */
+public class BitReader {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long accumulator;
+    private int available;
+    private boolean endOfStream;
+
+    /**
+     * Constructor to read bits from the given stream.
+     * @param in The stream holding the packed bytes.
+     */
+    public BitReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads one bit.
+     * @return 0 or 1.
+     * @throws EOFException If the stream has no more bits.
+     * @throws IOException If an I/O error occurs.
+     */
+    public int readBit() throws IOException {
+        if (available == 0) {
+            require(1);
+        }
+        available--;
+        return (int) (accumulator >>> available) & 1;
+    }
+
+    /**
+     * Reads length bits as an unsigned number, the first bit read being the most significant.
+     * @param length The number of bits, from 0 to 32.
+     * @return The bits read.
+     * @throws EOFException If the stream ends first.
+     * @throws IOException If an I/O error occurs.
+     */
+    public int readBits(int length) throws IOException {
+        if (available < length) {
+            require(length);
+        }
+        available -= length;
+        return (int) ((accumulator >>> available) & ((1L << length) - 1));
+    }
+
+    /**
+     * Returns the next length bits without consuming them. Past the end of the stream the
+     * missing bits read as zeros, so a decoder can always look up a full table index.
+     * @param length The number of bits, from 0 to 32.
+     * @return The bits, the first one being the most significant.
+     * @throws IOException If an I/O error occurs.
+     */
+    public int peekBits(int length) throws IOException {
+        if (available < length) {
+            refill();
+            if (available < length) {
+                return (int) ((accumulator << (length - available)) & ((1L << length) - 1));
+            }
+        }
+        return (int) ((accumulator >>> (available - length)) & ((1L << length) - 1));
+    }
+
+    /**
+     * Consumes length bits, usually after looking at them with peekBits.
+     * @param length The number of bits, from 0 to 32.
+     * @throws EOFException If the stream ends first.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void skipBits(int length) throws IOException {
+        if (available < length) {
+            require(length);
+        }
+        available -= length;
+    }
+
+    /**
+     * Discards the bits left in the current byte, so the next read starts on a byte boundary.
+     */
+    public void alignToByte() {
+        available -= available % 8;
+    }
+
+    /**
+     * Refills the accumulator and fails if it still holds fewer than the given number of bits.
+     * @param needed The number of bits needed.
+     * @throws EOFException If the stream ends first.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void require(int needed) throws IOException {
+        refill();
+        if (available < needed) {
+            throw new EOFException("Unexpected end of Huffman bit stream");
+        }
+    }
+
+    /**
+     * Adds whole bytes to the accumulator until it holds more than 56 bits or the stream ends.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void refill() throws IOException {
+        while (available <= 56) {
+            if (position == limit) {
+                if (endOfStream) {
+                    return;
+                }
+                limit = in.read(buffer, 0, BUFFER_SIZE);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    endOfStream = true;
+                    return;
+                }
+            }
+            accumulator = (accumulator << 8) | (buffer[position++] & 0xFF);
+            available += 8;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes variable-length bit codes to an OutputStream, most significant bit first.
+ * Bits collect in a long accumulator and leave it a byte at a time through an internal
+ * buffer, so the stream sees large writes only.
+ */
+public class BitWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private long accumulator;
+    private int pending;
+    private long bitsWritten;
+
+    /**
+     * Constructor to write bits to the given stream.
+     * @param out The stream the packed bytes are written to.
+     */
+    public BitWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the low length bits of code, the most significant of them first.
+     * @param code The bits to write.
+     * @param length The number of bits, from 0 to 64.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void write(long code, int length) throws IOException {
+        if (length > 32) {
+            write(code >>> 32, length - 32);
+            length = 32;
+        }
+        // At most 7 bits are pending, so 32 more always fit in the accumulator
+        accumulator = (accumulator << length) | (code & ((1L << length) - 1));
+        pending += length;
+        bitsWritten += length;
+        while (pending >= 8) {
+            pending -= 8;
+            buffer[position++] = (byte) (accumulator >>> pending);
+            if (position == BUFFER_SIZE) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bits written so far, not counting padding.
+     * @return The bit count.
+     */
+    public long bitsWritten() {
+        return bitsWritten;
+    }
+
+    /**
+     * Pads the last partial byte with zero bits and writes everything buffered to the stream.
+     * Further bits start on a new byte.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void flush() throws IOException {
+        if (pending > 0) {
+            int padding = 8 - pending;
+            write(0, padding);
+            bitsWritten -= padding;
+        }
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,262 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Canonical Huffman code with table-driven decoding.
+ * Only the code length of each character is taken from the Huffman tree; the codes are
+ * then assigned in order of length and, within a length, of character, so the code is
+ * fully described by the lengths and the decoder can rebuild it from them alone. Every
+ * character keeps the length the tree gave it, so the encoded size is unchanged.
+ *
+ * Decoding looks up the next PRIMARY_BITS bits in a table whose entry gives the character
+ * and its code length, so a short code is resolved in one step instead of one branch per
+ * bit. Codes longer than PRIMARY_BITS share a primary entry that points to a second-level
+ * table indexed by up to SECONDARY_BITS further bits. The rare code that is longer still
+ * is finished one bit at a time with the canonical first-code-per-length rule.
+ */
+public class CanonicalHuffmanCode {
+
+    /** Bits resolved by the first table lookup. */
+    static final int PRIMARY_BITS = 10;
+
+    /** Most bits resolved by a second-level table lookup. */
+    static final int SECONDARY_BITS = 12;
+
+    /** Longest code supported; codes are kept in a long. */
+    static final int MAX_CODE_LENGTH = 63;
+
+    private final char[] sortedSymbols;
+    private final int[] sortedLengths;
+    private final int maxLength;
+    private final int[] lengthCounts;
+    private final long[] firstCode;
+    private final int[] firstIndex;
+    private final long[] codes;
+    private final int[] lengths;
+
+    // Table entries: (character << 8) | code length for a resolved code, ~(offset << 5 | bits)
+    // in the primary table for a pointer to a second-level table, and 0 for no code.
+    private final int[] primary;
+    private final int[] secondary;
+
+    /**
+     * Builds the canonical code with the code lengths of a Huffman tree.
+     * @param root The root of a tree built by HuffmanCoding.buildHuffmanTree; its leaves
+     *             hold single characters. A tree that is a single leaf gives that character
+     *             a one-bit code.
+     * @return The canonical code.
+     */
+    public static CanonicalHuffmanCode fromTree(HuffmanNode root) {
+        int leaves = countLeaves(root);
+        char[] symbols = new char[leaves];
+        int[] lengths = new int[leaves];
+        if (root != null) {
+            boolean single = root.left == null && root.right == null;
+            collectLengths(root, single ? 1 : 0, symbols, lengths, 0);
+        }
+        return new CanonicalHuffmanCode(symbols, lengths);
+    }
+
+    private static int countLeaves(HuffmanNode node) {
+        if (node == null) {
+            return 0;
+        }
+        if (node.left == null && node.right == null) {
+            return 1;
+        }
+        return countLeaves(node.left) + countLeaves(node.right);
+    }
+
+    private static int collectLengths(HuffmanNode node, int depth, char[] symbols, int[] lengths, int count) {
+        if (node.left == null && node.right == null) {
+            if (node.characters.length() != 1) {
+                throw new IllegalArgumentException("Huffman tree leaf is not a single character: \""
+                        + node.characters + "\"");
+            }
+            symbols[count] = node.characters.charAt(0);
+            lengths[count] = depth;
+            return count + 1;
+        }
+        count = collectLengths(node.left, depth + 1, symbols, lengths, count);
+        return collectLengths(node.right, depth + 1, symbols, lengths, count);
+    }
+
+    /**
+     * Builds the canonical code for the given characters and code lengths, as stored in an
+     * encoded header.
+     * @param symbols The characters, each at most once.
+     * @param codeLengths Their code lengths, from 1 to MAX_CODE_LENGTH.
+     * @throws IllegalArgumentException If a character repeats, a length is out of range,
+     *                                  or there are more codes of some length than fit.
+     */
+    public CanonicalHuffmanCode(char[] symbols, int[] codeLengths) {
+        int n = symbols.length;
+        // Sort by (length, character) through a packed key
+        long[] keys = new long[n];
+        int longest = 0;
+        int maxSymbol = -1;
+        for (int i = 0; i < n; i++) {
+            if (codeLengths[i] < 1 || codeLengths[i] > MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("Invalid code length " + codeLengths[i] + " for " + symbols[i]);
+            }
+            keys[i] = (long) codeLengths[i] << 16 | symbols[i];
+            longest = Math.max(longest, codeLengths[i]);
+            maxSymbol = Math.max(maxSymbol, symbols[i]);
+        }
+        Arrays.sort(keys);
+        maxLength = longest;
+        sortedSymbols = new char[n];
+        sortedLengths = new int[n];
+        lengthCounts = new int[maxLength + 2];
+        for (int i = 0; i < n; i++) {
+            sortedSymbols[i] = (char) keys[i];
+            sortedLengths[i] = (int) (keys[i] >>> 16);
+            lengthCounts[sortedLengths[i]]++;
+        }
+
+        // First code and first sorted index of every length
+        firstCode = new long[maxLength + 2];
+        firstIndex = new int[maxLength + 2];
+        long code = 0;
+        int index = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            code = (code + lengthCounts[length - 1]) << 1;
+            firstCode[length] = code;
+            firstIndex[length] = index;
+            index += lengthCounts[length];
+            if (lengthCounts[length] > 0 && (code + lengthCounts[length] - 1) >>> length != 0) {
+                throw new IllegalArgumentException("Code lengths do not form a prefix code");
+            }
+        }
+
+        codes = new long[maxSymbol + 1];
+        lengths = new int[maxSymbol + 1];
+        for (int i = 0; i < n; i++) {
+            char symbol = sortedSymbols[i];
+            if (lengths[symbol] != 0) {
+                throw new IllegalArgumentException("Character appears twice: " + symbol);
+            }
+            lengths[symbol] = sortedLengths[i];
+            codes[symbol] = firstCode[sortedLengths[i]] + (i - firstIndex[sortedLengths[i]]);
+        }
+
+        primary = new int[1 << PRIMARY_BITS];
+        secondary = buildTables();
+    }
+
+    /**
+     * Fills the primary table and returns the second-level tables, concatenated.
+     * @return The second-level tables.
+     */
+    private int[] buildTables() {
+        // Longest code under every primary prefix that has codes longer than PRIMARY_BITS
+        int[] prefixMax = new int[1 << PRIMARY_BITS];
+        for (int i = 0; i < sortedSymbols.length; i++) {
+            int length = sortedLengths[i];
+            long code = codes[sortedSymbols[i]];
+            if (length <= PRIMARY_BITS) {
+                int start = (int) (code << (PRIMARY_BITS - length));
+                Arrays.fill(primary, start, start + (1 << (PRIMARY_BITS - length)), sortedSymbols[i] << 8 | length);
+            } else {
+                int prefix = (int) (code >>> (length - PRIMARY_BITS));
+                prefixMax[prefix] = Math.max(prefixMax[prefix], length);
+            }
+        }
+        int total = 0;
+        for (int prefix = 0; prefix < prefixMax.length; prefix++) {
+            if (prefixMax[prefix] != 0) {
+                int bits = Math.min(prefixMax[prefix] - PRIMARY_BITS, SECONDARY_BITS);
+                primary[prefix] = ~(total << 5 | bits);
+                total += 1 << bits;
+            }
+        }
+        int[] tables = new int[total];
+        for (int i = 0; i < sortedSymbols.length; i++) {
+            int length = sortedLengths[i];
+            if (length <= PRIMARY_BITS) {
+                continue;
+            }
+            long code = codes[sortedSymbols[i]];
+            int pointer = ~primary[(int) (code >>> (length - PRIMARY_BITS))];
+            int bits = pointer & 31;
+            int rest = length - PRIMARY_BITS;
+            if (rest > bits) {
+                continue;  // left to the bit-at-a-time path
+            }
+            int start = (pointer >>> 5) + (int) ((code & ((1L << rest) - 1)) << (bits - rest));
+            Arrays.fill(tables, start, start + (1 << (bits - rest)), sortedSymbols[i] << 8 | length);
+        }
+        return tables;
+    }
+
+    /**
+     * Checks if a character has a code.
+     * @param c The character to check.
+     * @return True if c has a code.
+     */
+    public boolean canEncode(char c) {
+        return c < lengths.length && lengths[c] != 0;
+    }
+
+    /**
+     * Returns the code of a character.
+     * @param c A character with a code.
+     * @return Its code in the low length(c) bits.
+     */
+    public long code(char c) {
+        return codes[c];
+    }
+
+    /**
+     * Returns the code length of a character.
+     * @param c The character.
+     * @return The number of bits of its code, or 0 if it has none.
+     */
+    public int length(char c) {
+        return c < lengths.length ? lengths[c] : 0;
+    }
+
+    /**
+     * Returns the characters in canonical order, which is how the header stores them.
+     * @return A copy of the characters sorted by code length, then by character.
+     */
+    public char[] symbols() {
+        return sortedSymbols.clone();
+    }
+
+    /**
+     * Decodes one character.
+     * @param in The bit stream.
+     * @return The decoded character.
+     * @throws IOException If the bits are not a code or the stream ends in the middle of one.
+     */
+    public char decode(BitReader in) throws IOException {
+        int prefix = in.peekBits(PRIMARY_BITS);
+        int entry = primary[prefix];
+        if (entry > 0) {
+            in.skipBits(entry & 0xFF);
+            return (char) (entry >>> 8);
+        }
+        if (entry == 0) {
+            throw new IOException("Invalid Huffman code");
+        }
+        int pointer = ~entry;
+        int bits = pointer & 31;
+        in.skipBits(PRIMARY_BITS);
+        entry = secondary[(pointer >>> 5) + in.peekBits(bits)];
+        if (entry != 0) {
+            in.skipBits((entry & 0xFF) - PRIMARY_BITS);
+            return (char) (entry >>> 8);
+        }
+        // Longer than the tables reach: extend the code one bit at a time
+        long code = prefix;
+        for (int length = PRIMARY_BITS + 1; length <= maxLength; length++) {
+            code = code << 1 | in.readBit();
+            long index = code - firstCode[length];
+            if (index >= 0 && index < lengthCounts[length]) {
+                return sortedSymbols[firstIndex[length] + (int) index];
+            }
+        }
+        throw new IOException("Invalid Huffman code");
+    }
+}
@@ -0,0 +1,160 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the tree-walk decoder (HuffmanBitCodec version 1) with the table decoder of the
+ * canonical code (version 2). Random text is drawn with the frequencies of a frequency
+ * table, encoded once in each format and decoded repeatedly; the first rounds warm up the
+ * JIT and are not counted, and the best of the remaining rounds is reported.
+ * It then times building the code for a 256-symbol byte histogram from HuffmanNode objects
+ * (HuffmanCoding.buildHuffmanTree) and from the int arrays of PrimitiveHuffmanTree.
+ * Usage: java HuffmanBenchmark [--freq FreqTable.txt] [--length n] [--rounds n]
+ */
+public class HuffmanBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+
+    /** Receives the tree build results so the JIT cannot drop the builds. */
+    private static volatile int blackhole;
+
+    /**
+     * Main method to run the benchmark and print the results.
+     * @param args Command line options, see the class comment.
+     * @throws IOException If the frequency table cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        String freqFile = "FreqTable.txt";
+        int length = 10_000_000;
+        int rounds = 5;
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--freq":
+                    freqFile = value;
+                    break;
+                case "--length":
+                    length = Integer.parseInt(value);
+                    break;
+                case "--rounds":
+                    rounds = Math.max(1, Integer.parseInt(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+
+        Map<String, Integer> freqMap = HuffmanCoding.readFrequencyTable(freqFile);
+        String text = randomText(freqMap, length, new Random(42));
+        System.out.printf("%d characters drawn from %s%n", length, freqFile);
+        run("tree walk (version 1)", new HuffmanBitCodec(freqMap, false).encode(text), text, rounds);
+        run("canonical tables (version 2)", new HuffmanBitCodec(freqMap, true).encode(text), text, rounds);
+        runTreeBuild(rounds);
+    }
+
+    /**
+     * Builds the code of a random byte histogram repeatedly in both ways and prints the
+     * best time per build. The two codes are checked to be the same.
+     * @param rounds Counted rounds.
+     */
+    private static void runTreeBuild(int rounds) {
+        Random random = new Random(42);
+        int[] counts = new int[256];
+        Map<String, Integer> freqMap = new HashMap<>();
+        for (int b = 0; b < counts.length; b++) {
+            counts[b] = 1 + random.nextInt(1000);
+            freqMap.put(String.valueOf((char) b), counts[b]);
+        }
+        CanonicalHuffmanCode nodes = CanonicalHuffmanCode.fromTree(HuffmanCoding.buildHuffmanTree(freqMap));
+        CanonicalHuffmanCode arrays = PrimitiveHuffmanTree.fromCounts(counts).canonicalCode();
+        if (!Arrays.equals(nodes.symbols(), arrays.symbols())) {
+            throw new IllegalStateException("The two trees give different codes");
+        }
+        for (char c : nodes.symbols()) {
+            if (nodes.length(c) != arrays.length(c)) {
+                throw new IllegalStateException("The two trees give different codes");
+            }
+        }
+
+        int builds = 2_000;
+        long bestNodes = Long.MAX_VALUE;
+        long bestArrays = Long.MAX_VALUE;
+        int sink = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + rounds; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < builds; i++) {
+                sink += HuffmanCoding.buildHuffmanTree(freqMap).freq;
+            }
+            long middle = System.nanoTime();
+            for (int i = 0; i < builds; i++) {
+                sink += PrimitiveHuffmanTree.fromCounts(counts).codeLengths()[0];
+            }
+            long end = System.nanoTime();
+            if (round >= WARMUP_ROUNDS) {
+                bestNodes = Math.min(bestNodes, middle - start);
+                bestArrays = Math.min(bestArrays, end - middle);
+            }
+        }
+        blackhole = sink;
+        System.out.println("256-symbol tree build");
+        System.out.printf("  %-30s %8.2f us per tree%n", "HuffmanNode objects", bestNodes / 1e3 / builds);
+        System.out.printf("  %-30s %8.2f us per tree%n", "PrimitiveHuffmanTree arrays", bestArrays / 1e3 / builds);
+    }
+
+    /**
+     * Decodes the encoded text repeatedly and prints the best throughput.
+     * @param name The name printed for the decoder.
+     * @param encoded The encoded text.
+     * @param text The original text, to check the result.
+     * @param rounds Counted rounds.
+     * @throws IOException If decoding fails.
+     */
+    private static void run(String name, byte[] encoded, String text, int rounds) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + rounds; round++) {
+            long start = System.nanoTime();
+            String decoded = HuffmanBitCodec.decode(encoded);
+            long elapsed = System.nanoTime() - start;
+            if (!decoded.equals(text)) {
+                throw new IllegalStateException(name + " decoded the text incorrectly");
+            }
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        System.out.printf("  %-30s %8d bytes %8.2f ms %8.1f M chars/s%n",
+                name, encoded.length, best / 1e6, text.length() * 1e3 / best);
+    }
+
+    /**
+     * Draws random text in which each character appears in proportion to its frequency.
+     * @param freqMap The frequencies by character.
+     * @param length The number of characters.
+     * @param random The random source.
+     * @return The text.
+     */
+    static String randomText(Map<String, Integer> freqMap, int length, Random random) {
+        int total = 0;
+        for (int freq : freqMap.values()) {
+            total += freq;
+        }
+        char[] pool = new char[total];
+        int filled = 0;
+        for (Map.Entry<String, Integer> entry : freqMap.entrySet()) {
+            for (int k = 0; k < entry.getValue(); k++) {
+                pool[filled++] = entry.getKey().charAt(0);
+            }
+        }
+        char[] text = new char[length];
+        for (int i = 0; i < length; i++) {
+            text[i] = pool[random.nextInt(total)];
+        }
+        return new String(text);
+    }
+}
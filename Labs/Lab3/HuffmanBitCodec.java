@@ -0,0 +1,319 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Huffman codec that writes real packed bits instead of a string of '0' and '1' characters.
+ * The codes come from the same tree HuffmanCoding.buildHuffmanTree builds, but they are
+ * kept in arrays indexed by character (the code bits in a long and their count in an int),
+ * so encoding a character is two array reads and one BitWriter call.
+ *
+ * There are two formats. Version 2, the default, uses the CanonicalHuffmanCode with the
+ * code lengths of the tree: the header only needs each character's code length, and
+ * decoding goes through lookup tables. Version 1 uses the tree's own codes and stores the
+ * frequency table, from which the decoder rebuilds the identical tree (HuffmanComparator
+ * breaks every tie, so the tree does not depend on the order of the table) and walks it
+ * one bit at a time.
+ * <pre>
+ *   int   magic "HUFF"
+ *   byte  version (1 or 2)
+ *   short number of table entries
+ *   entries: char symbol, then int frequency (version 1) or byte code length (version 2)
+ *   long  number of encoded characters
+ *   packed code bits, the last byte padded with zero bits
+ * </pre>
+ * A table with a single character has a tree that is just a leaf; that character is given
+ * the one-bit code 0.
+ */
+public class HuffmanBitCodec {
+
+    /** "HUFF" in ASCII. */
+    static final int MAGIC = 0x48554646;
+
+    /** Format with the frequency table in the header and tree-walk decoding. */
+    static final int VERSION_TREE = 1;
+
+    /** Format with canonical code lengths in the header and table decoding. */
+    static final int VERSION_CANONICAL = 2;
+
+    private final int version;
+    private final char[] symbols;
+    private final int[] frequencies;
+    private final long[] codes;
+    private final int[] lengths;
+
+    /**
+     * Constructor to build the codec for a frequency table, writing the canonical format.
+     * @param freqMap Single-character strings and their frequencies, as read from FreqTable.txt.
+     * @throws IllegalArgumentException If a key is not exactly one character.
+     */
+    public HuffmanBitCodec(Map<String, Integer> freqMap) {
+        this(freqMap, true);
+    }
+
+    /**
+     * Constructor to build the codec for a frequency table.
+     * @param freqMap Single-character strings and their frequencies, as read from FreqTable.txt.
+     * @param canonical True to write version 2 (canonical codes), false for version 1 (tree codes).
+     * @throws IllegalArgumentException If a key is not exactly one character.
+     */
+    public HuffmanBitCodec(Map<String, Integer> freqMap, boolean canonical) {
+        version = canonical ? VERSION_CANONICAL : VERSION_TREE;
+        symbols = new char[freqMap.size()];
+        frequencies = new int[freqMap.size()];
+        int count = 0;
+        char maxSymbol = 0;
+        for (Map.Entry<String, Integer> entry : freqMap.entrySet()) {
+            String key = entry.getKey();
+            if (key.length() != 1) {
+                throw new IllegalArgumentException("Frequency table entry is not a single character: \"" + key + "\"");
+            }
+            symbols[count] = key.charAt(0);
+            frequencies[count++] = entry.getValue();
+            maxSymbol = (char) Math.max(maxSymbol, key.charAt(0));
+        }
+        codes = new long[count == 0 ? 0 : maxSymbol + 1];
+        lengths = new int[codes.length];
+        if (canonical) {
+            // Only the code lengths are needed, which the array tree gives without HuffmanNode objects
+            CanonicalHuffmanCode code = PrimitiveHuffmanTree.build(symbols, frequencies).canonicalCode();
+            for (char c : symbols) {
+                codes[c] = code.code(c);
+                lengths[c] = code.length(c);
+            }
+        } else {
+            HuffmanNode root = HuffmanCoding.buildHuffmanTree(freqMap);
+            if (root != null && isLeaf(root)) {
+                lengths[root.characters.charAt(0)] = 1;
+            } else if (root != null) {
+                assignCodes(root, 0L, 0);
+            }
+        }
+    }
+
+    /**
+     * Records the code of every leaf below node.
+     * @param node The current node.
+     * @param code The bits of the path to node.
+     * @param length The length of the path.
+     */
+    private void assignCodes(HuffmanNode node, long code, int length) {
+        if (isLeaf(node)) {
+            if (length > 64) {
+                throw new IllegalArgumentException("Huffman code longer than 64 bits for " + node.characters);
+            }
+            codes[node.characters.charAt(0)] = code;
+            lengths[node.characters.charAt(0)] = length;
+            return;
+        }
+        assignCodes(node.left, code << 1, length + 1);
+        assignCodes(node.right, (code << 1) | 1, length + 1);
+    }
+
+    private static boolean isLeaf(HuffmanNode node) {
+        return node.left == null && node.right == null;
+    }
+
+    /**
+     * Checks if a character has a code.
+     * @param c The character to check.
+     * @return True if c is in the frequency table.
+     */
+    public boolean canEncode(char c) {
+        return c < lengths.length && lengths[c] != 0;
+    }
+
+    /**
+     * Returns the code length of a character.
+     * @param c The character.
+     * @return The number of bits of its code, or 0 if it is not in the frequency table.
+     */
+    public int codeLength(char c) {
+        return c < lengths.length ? lengths[c] : 0;
+    }
+
+    /**
+     * Encodes text into a byte array, header included.
+     * @param text The text to encode.
+     * @return The encoded bytes.
+     * @throws IllegalArgumentException If the text contains a character without a code.
+     */
+    public byte[] encode(CharSequence text) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(headerSize() + text.length() / 2);
+        try {
+            encode(text, bytes);
+        } catch (IOException e) {
+            throw new AssertionError("ByteArrayOutputStream does not throw", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes text to a stream, header included.
+     * @param text The text to encode.
+     * @param out The stream the encoded bytes are written to.
+     * @throws IllegalArgumentException If the text contains a character without a code;
+     *                                  nothing has been written to out in that case.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void encode(CharSequence text, OutputStream out) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            if (!canEncode(text.charAt(i))) {
+                throw new IllegalArgumentException("Character not in frequency table: " + text.charAt(i));
+            }
+        }
+        DataOutputStream header = new DataOutputStream(out);
+        writeHeader(header, text.length());
+        header.flush();
+        BitWriter bits = new BitWriter(out);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            bits.write(codes[c], lengths[c]);
+        }
+        bits.flush();
+    }
+
+    /**
+     * Returns the size of the header this codec writes.
+     * @return The header size in bytes.
+     */
+    public int headerSize() {
+        return 4 + 1 + 2 + symbols.length * (version == VERSION_CANONICAL ? 3 : 6) + 8;
+    }
+
+    private void writeHeader(DataOutputStream out, long length) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(version);
+        out.writeShort(symbols.length);
+        for (int i = 0; i < symbols.length; i++) {
+            out.writeChar(symbols[i]);
+            if (version == VERSION_CANONICAL) {
+                out.writeByte(lengths[symbols[i]]);
+            } else {
+                out.writeInt(frequencies[i]);
+            }
+        }
+        out.writeLong(length);
+    }
+
+    /**
+     * Decodes bytes produced by encode.
+     * @param data The encoded bytes.
+     * @return The decoded text.
+     * @throws IOException If the data is not valid encoded data.
+     */
+    public static String decode(byte[] data) throws IOException {
+        return decode(new ByteArrayInputStream(data));
+    }
+
+    /**
+     * Decodes a stream produced by encode, in either format.
+     * @param in The encoded stream.
+     * @return The decoded text.
+     * @throws IOException If the stream is not valid encoded data or ends early.
+     */
+    public static String decode(InputStream in) throws IOException {
+        DataInputStream header = new DataInputStream(in);
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Not Huffman encoded data");
+        }
+        int version = header.readUnsignedByte();
+        if (version == VERSION_CANONICAL) {
+            return decodeCanonical(header);
+        }
+        if (version != VERSION_TREE) {
+            throw new IOException("Unsupported Huffman format version " + version);
+        }
+        int count = header.readUnsignedShort();
+        Map<String, Integer> freqMap = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            freqMap.put(String.valueOf(header.readChar()), header.readInt());
+        }
+        long length = readLength(header);
+        HuffmanNode root = HuffmanCoding.buildHuffmanTree(freqMap);
+        if (root == null && length > 0) {
+            throw new IOException("Encoded data without a frequency table");
+        }
+
+        char[] text = new char[(int) length];
+        BitReader bits = new BitReader(in);
+        if (root != null && isLeaf(root)) {
+            char symbol = root.characters.charAt(0);
+            for (int i = 0; i < text.length; i++) {
+                bits.readBit();
+                text[i] = symbol;
+            }
+            return new String(text);
+        }
+        for (int i = 0; i < text.length; i++) {
+            HuffmanNode node = root;
+            while (!isLeaf(node)) {
+                node = bits.readBit() == 0 ? node.left : node.right;
+            }
+            text[i] = node.characters.charAt(0);
+        }
+        return new String(text);
+    }
+
+    /**
+     * Decodes the rest of a version 2 stream with the table decoder of the canonical code.
+     * @param in The encoded stream, positioned after the version.
+     * @return The decoded text.
+     * @throws IOException If the stream is not valid encoded data or ends early.
+     */
+    private static String decodeCanonical(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        char[] symbols = new char[count];
+        int[] codeLengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            symbols[i] = in.readChar();
+            codeLengths[i] = in.readUnsignedByte();
+        }
+        long length = readLength(in);
+        CanonicalHuffmanCode code;
+        try {
+            code = new CanonicalHuffmanCode(symbols, codeLengths);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid Huffman code table: " + e.getMessage(), e);
+        }
+        char[] text = new char[(int) length];
+        BitReader bits = new BitReader(in);
+        for (int i = 0; i < text.length; i++) {
+            text[i] = code.decode(bits);
+        }
+        return new String(text);
+    }
+
+    private static long readLength(DataInputStream in) throws IOException {
+        long length = in.readLong();
+        if (length < 0 || length > Integer.MAX_VALUE - 8) {
+            throw new IOException("Invalid encoded length " + length);
+        }
+        return length;
+    }
+
+    /**
+     * Returns the code of every character as a string of '0' and '1', for printing.
+     * @return The codes by character, in character order.
+     */
+    public Map<Character, String> codeTable() {
+        char[] sorted = Arrays.copyOf(symbols, symbols.length);
+        Arrays.sort(sorted);
+        Map<Character, String> table = new LinkedHashMap<>();
+        for (char c : sorted) {
+            StringBuilder code = new StringBuilder();
+            for (int bit = lengths[c] - 1; bit >= 0; bit--) {
+                code.append((codes[c] >>> bit & 1) == 0 ? '0' : '1');
+            }
+            table.put(c, code.toString());
+        }
+        return table;
+    }
+}
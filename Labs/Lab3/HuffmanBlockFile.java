@@ -0,0 +1,247 @@
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reads a container written by ParallelHuffmanCompressor. The index at the end of the file
+ * gives the offset of every block, so any block can be decoded by itself, and several
+ * threads can read and decode blocks at once through positional reads of the channel.
+ */
+public class HuffmanBlockFile implements Closeable {
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private final long[] offsets;
+    private final int[] frameLengths;
+    private final int[] charCounts;
+    private final long totalCharacters;
+
+    /**
+     * Decodes one block into its characters.
+     */
+    private final class DecodeTask extends RecursiveTask<char[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int index;
+
+        DecodeTask(int index) {
+            this.index = index;
+        }
+
+        @Override
+        protected char[] compute() {
+            try {
+                return readBlockChars(index);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Constructor to open a container and read its index.
+     * @param fileName The container file.
+     * @throws IOException If the file cannot be read or is not a valid container.
+     */
+    public HuffmanBlockFile(String fileName) throws IOException {
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < 4 + 1 + 4 + ParallelHuffmanCompressor.TRAILER_SIZE) {
+                throw new IOException("Not a parallel Huffman container");
+            }
+            ByteBuffer header = read(0, 4 + 1 + 4);
+            if (header.getInt() != ParallelHuffmanCompressor.MAGIC) {
+                throw new IOException("Not a parallel Huffman container");
+            }
+            int version = header.get() & 0xFF;
+            if (version != ParallelHuffmanCompressor.VERSION) {
+                throw new IOException("Unsupported parallel Huffman container version " + version);
+            }
+            blockSize = header.getInt();
+            if (blockSize < 1) {
+                throw new IOException("Invalid block size " + blockSize);
+            }
+
+            ByteBuffer trailer = read(size - ParallelHuffmanCompressor.TRAILER_SIZE, ParallelHuffmanCompressor.TRAILER_SIZE);
+            long indexOffset = trailer.getLong();
+            int blocks = trailer.getInt();
+            if (trailer.getInt() != ParallelHuffmanCompressor.INDEX_MAGIC) {
+                throw new IOException("Parallel Huffman container without an index");
+            }
+            if (blocks < 0 || indexOffset < 4 + 1 + 4
+                    || indexOffset + (long) blocks * ParallelHuffmanCompressor.INDEX_ENTRY_SIZE
+                    != size - ParallelHuffmanCompressor.TRAILER_SIZE) {
+                throw new IOException("Invalid parallel Huffman container index");
+            }
+
+            ByteBuffer index = read(indexOffset, blocks * ParallelHuffmanCompressor.INDEX_ENTRY_SIZE);
+            offsets = new long[blocks];
+            frameLengths = new int[blocks];
+            charCounts = new int[blocks];
+            long total = 0;
+            for (int i = 0; i < blocks; i++) {
+                offsets[i] = index.getLong();
+                frameLengths[i] = index.getInt();
+                charCounts[i] = index.getInt();
+                if (offsets[i] < 4 + 1 + 4 || frameLengths[i] < 8 || offsets[i] + frameLengths[i] > indexOffset
+                        || charCounts[i] < 1 || charCounts[i] > blockSize) {
+                    throw new IOException("Invalid index entry for block " + i);
+                }
+                total += charCounts[i];
+            }
+            totalCharacters = total;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads bytes at a position of the file without moving the channel's own position,
+     * which is what lets several threads read at once.
+     * @param position Where to start.
+     * @param length How many bytes to read.
+     * @return The bytes, ready to be read.
+     * @throws IOException If an I/O error occurs or the file ends first.
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Parallel Huffman container ends early");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Returns the number of blocks.
+     * @return The number of blocks.
+     */
+    public int blockCount() {
+        return offsets.length;
+    }
+
+    /**
+     * Returns the block size the container was written with.
+     * @return The most characters a block holds.
+     */
+    public int blockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns the number of characters in a block.
+     * @param index The block index.
+     * @return The number of characters in it.
+     */
+    public int blockLength(int index) {
+        return charCounts[index];
+    }
+
+    /**
+     * Returns the number of characters in all blocks.
+     * @return The length of the decompressed text.
+     */
+    public long totalCharacters() {
+        return totalCharacters;
+    }
+
+    /**
+     * Decodes one block.
+     * @param index The block index, from 0 to blockCount() - 1.
+     * @return The text of the block.
+     * @throws IOException If the block is not valid compressed data.
+     */
+    public String readBlock(int index) throws IOException {
+        return new String(readBlockChars(index));
+    }
+
+    private char[] readBlockChars(int index) throws IOException {
+        if (index < 0 || index >= offsets.length) {
+            throw new IndexOutOfBoundsException("Block " + index + " of " + offsets.length);
+        }
+        ByteBuffer frame = read(offsets[index], frameLengths[index]);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame.array()));
+        int length = in.readInt();
+        if (length != charCounts[index]) {
+            throw new IOException("Block " + index + " length does not match the index");
+        }
+        int count = in.readInt();
+        if (count < 1 || count > Character.MAX_VALUE + 1) {
+            throw new IOException("Invalid code table size " + count + " in block " + index);
+        }
+        char[] symbols = new char[count];
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            symbols[i] = in.readChar();
+            lengths[i] = in.readUnsignedByte();
+        }
+        CanonicalHuffmanCode code;
+        try {
+            code = new CanonicalHuffmanCode(symbols, lengths);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid Huffman code table in block " + index + ": " + e.getMessage(), e);
+        }
+        BitReader bits = new BitReader(in);
+        char[] text = new char[length];
+        for (int i = 0; i < length; i++) {
+            text[i] = code.decode(bits);
+        }
+        return text;
+    }
+
+    /**
+     * Decompresses every block on a pool and writes the text in order. Up to twice the
+     * pool's parallelism blocks are decoded at a time.
+     * @param out Where the text is written; flushed but not closed.
+     * @param pool The pool that decodes the blocks.
+     * @return The number of characters written.
+     * @throws IOException If a block is not valid compressed data or an I/O error occurs.
+     */
+    public long decompress(Writer out, ForkJoinPool pool) throws IOException {
+        int window = 2 * pool.getParallelism();
+        Deque<ForkJoinTask<char[]>> pending = new ArrayDeque<>();
+        int next = 0;
+        long written = 0;
+        while (next < offsets.length || !pending.isEmpty()) {
+            while (next < offsets.length && pending.size() < window) {
+                pending.addLast(pool.submit(new DecodeTask(next++)));
+            }
+            char[] text;
+            try {
+                text = pending.removeFirst().join();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.write(text);
+            written += text.length;
+        }
+        out.flush();
+        return written;
+    }
+
+    /**
+     * Closes the file.
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -58,6 +58,17 @@ public class HuffmanCoding {
  * @return The encoded text as a binary string.
  */
 public static String encodeText(String text, Map<String, String> codeMap) {
+    return encodeText(text, codeMap, true);
+}
+
+/**
+ * Encodes the given text using the Huffman codes.
+ * @param text The text to encode.
+ * @param codeMap A map of Huffman codes for each character.
+ * @param verbose True to print every skipped character and the encoded text.
+ * @return The encoded text as a binary string.
+ */
+public static String encodeText(String text, Map<String, String> codeMap, boolean verbose) {
     StringBuilder encodedText = new StringBuilder();
     text = text.toUpperCase(); // Convert clear text to uppercase for uniform encoding
 
@@ -65,12 +76,14 @@ public static String encodeText(String text, Map<String, String> codeMap) {
         String str = String.valueOf(c);
         if (codeMap.containsKey(str)) {
             encodedText.append(codeMap.get(str));
-        } else {
+        } else if (verbose) {
             // Handle or skip characters not in the frequency table
             System.out.println("Character not in frequency table, skipping: " + c);
         }
     }
-    System.out.println("\nEncoded Text (Debug): " + encodedText.toString());
+    if (verbose) {
+        System.out.println("\nEncoded Text (Debug): " + encodedText.toString());
+    }
     return encodedText.toString();
 }
 
@@ -81,6 +94,17 @@ public static String encodeText(String text, Map<String, String> codeMap) {
  * @return The decoded text.
  */
 public static String decodeText(String encodedText, HuffmanNode root) {
+    return decodeText(encodedText, root, true);
+}
+
+/**
+ * Decodes the encoded text using the Huffman Tree.
+ * @param encodedText The encoded text as a binary string.
+ * @param root The root of the Huffman Tree.
+ * @param verbose True to print unexpected characters and the decoded text.
+ * @return The decoded text.
+ */
+public static String decodeText(String encodedText, HuffmanNode root, boolean verbose) {
     StringBuilder decodedText = new StringBuilder();
     HuffmanNode current = root;
 
@@ -95,12 +119,14 @@ public static String decodeText(String encodedText, HuffmanNode root) {
                 decodedText.append(current.characters);
                 current = root;
             }
-        } else {
+        } else if (verbose) {
             // Handle unexpected characters in the encoded text (shouldn't happen with binary encoding)
             System.out.println("Unexpected character in encoded text, skipping: " + bit);
         }
     }
-    System.out.println("\nDecoded Text (Debug): " + decodedText.toString());
+    if (verbose) {
+        System.out.println("\nDecoded Text (Debug): " + decodedText.toString());
+    }
     return decodedText.toString();
 }
 
@@ -121,21 +147,53 @@ public static String decodeText(String encodedText, HuffmanNode root) {
         printPreorder(root.right);
     }
 
+    /**
+     * Reads a frequency table with one "character - frequency" entry per line.
+     * Blank lines are ignored.
+     * @param fileName The frequency table file.
+     * @return A map of characters and their frequencies.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static Map<String, Integer> readFrequencyTable(String fileName) throws IOException {
+        Map<String, Integer> freqMap = new HashMap<>();
+        try (BufferedReader freqReader = new BufferedReader(new FileReader(fileName))) {
+            String line;
+            while ((line = freqReader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] parts = line.split(" - ");
+                freqMap.put(parts[0], Integer.parseInt(parts[1].trim()));
+            }
+        }
+        return freqMap;
+    }
+
     /**
      * Main method to read input files, encode and decode text using Huffman coding.
-     * @param args Command-line arguments (not used).
+     * @param args Optional file names, in order: frequency table (default FreqTable.txt),
+     *             clear text (default ClearText.txt) and encoded text (default Encoded.txt).
+     *             -q anywhere suppresses the per-character debug output.
      * @throws IOException If an I/O error occurs.
      */
     public static void main(String[] args) throws IOException {
+        String[] fileNames = {"FreqTable.txt", "ClearText.txt", "Encoded.txt"};
+        boolean verbose = true;
+        int named = 0;
+        for (String arg : args) {
+            if (arg.equals("-q") || arg.equals("--quiet")) {
+                verbose = false;
+            } else if (named < fileNames.length) {
+                fileNames[named++] = arg;
+            } else {
+                System.out.println("Usage: java HuffmanCoding [freqTable] [clearText] [encodedText] [-q]");
+                return;
+            }
+        }
+
         // Step 1: Read the frequency table from file
-        Map<String, Integer> freqMap = new HashMap<>();
-        BufferedReader freqReader = new BufferedReader(new FileReader("FreqTable.txt"));
+        Map<String, Integer> freqMap = readFrequencyTable(fileNames[0]);
         String line;
-        while ((line = freqReader.readLine()) != null) {
-            String[] parts = line.split(" - ");
-            freqMap.put(parts[0], Integer.parseInt(parts[1]));
-        }
-        freqReader.close();
 
         // Step 2: Build the Huffman Tree
         HuffmanNode root = buildHuffmanTree(freqMap);
@@ -155,7 +213,7 @@ public static String decodeText(String encodedText, HuffmanNode root) {
         }
 
         // Step 6: Read the clear text from file and encode it
-        BufferedReader clearTextReader = new BufferedReader(new FileReader("ClearText.txt"));
+        BufferedReader clearTextReader = new BufferedReader(new FileReader(fileNames[1]));
         StringBuilder clearText = new StringBuilder();
         while ((line = clearTextReader.readLine()) != null) {
             clearText.append(line).append("\n");
@@ -168,17 +226,31 @@ public static String decodeText(String encodedText, HuffmanNode root) {
         }
 
         System.out.println("\nClear Text Read from File:\n" + clearText.toString());
-        String encodedText = encodeText(clearText.toString(), codeMap);
+        String encodedText = encodeText(clearText.toString(), codeMap, verbose);
 
         // Print the encoded text
         System.out.println("\nEncoded Text: " + encodedText);
 
         // Step 7: Decode the encoded text from file
-        BufferedReader encodedTextReader = new BufferedReader(new FileReader("Encoded.txt"));
+        BufferedReader encodedTextReader = new BufferedReader(new FileReader(fileNames[2]));
         while ((line = encodedTextReader.readLine()) != null) {
-            String decodedText = decodeText(line, root);
+            String decodedText = decodeText(line, root, verbose);
             System.out.println("Decoded Text: " + decodedText);
         }
         encodedTextReader.close();
+
+        // Step 8: Pack the clear text into real bits and read it back
+        HuffmanBitCodec codec = new HuffmanBitCodec(freqMap);
+        StringBuilder packable = new StringBuilder();
+        for (char c : clearText.toString().toUpperCase().toCharArray()) {
+            if (codec.canEncode(c)) {
+                packable.append(c);
+            }
+        }
+        byte[] packed = codec.encode(packable);
+        String unpacked = HuffmanBitCodec.decode(packed);
+        System.out.println("\nPacked " + packable.length() + " characters into " + packed.length + " bytes ("
+                + codec.headerSize() + " header bytes); as '0'/'1' text they take " + encodedText.length() + " bytes");
+        System.out.println("Unpacked text matches: " + unpacked.contentEquals(packable));
     }
 }
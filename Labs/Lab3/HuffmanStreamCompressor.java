@@ -0,0 +1,378 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compresses text streams of any size with a canonical Huffman code, holding only one block
+ * of characters in memory at a time. The code comes from a frequency table, either a file
+ * like FreqTable.txt (characters missing from it are skipped and counted, as
+ * HuffmanCoding.encodeText does) or a counting pass over the input itself, which covers
+ * every character and makes the compression lossless. main reads and writes strict UTF-8:
+ * a malformed byte sequence in the input stops it with a CharacterCodingException instead
+ * of being replaced by U+FFFD, so a file that is not valid UTF-8 is never silently changed.
+ *
+ * Stream format:
+ * <pre>
+ *   int   magic "HUFS"
+ *   byte  version (1)
+ *   int   block size in characters
+ *   int   number of table entries
+ *   entries: char symbol, byte code length (canonical order)
+ *   blocks, each starting on a byte boundary:
+ *     32 bits  number of characters n (at most the block size)
+ *     the codes of the n characters, padded with zero bits to a whole byte
+ *   a block with n = 0 ends the stream
+ * </pre>
+ */
+public class HuffmanStreamCompressor {
+
+    /** "HUFS" in ASCII. */
+    static final int MAGIC = 0x48554653;
+
+    /** Format version written in the header. */
+    static final int VERSION = 1;
+
+    /** Characters per block unless another size is given. */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+    /** Frequencies are halved until their total fits in an int, since tree nodes sum them. */
+    private static final long MAX_TOTAL_FREQUENCY = Integer.MAX_VALUE;
+
+    /**
+     * Counts of what a compression run did.
+     */
+    public static class Result {
+        /** Characters read from the input. */
+        public long charactersRead;
+
+        /** Characters written to the compressed stream. */
+        public long charactersEncoded;
+
+        /** Characters without a code, left out of the compressed stream. */
+        public long charactersSkipped;
+    }
+
+    private final CanonicalHuffmanCode code;
+    private final int blockSize;
+    private boolean uppercase;
+
+    /**
+     * Constructor to compress with the code of a frequency table.
+     * @param freqMap Single-character strings and their frequencies.
+     * @param blockSize Characters per block.
+     */
+    public HuffmanStreamCompressor(Map<String, Integer> freqMap, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.code = PrimitiveHuffmanTree.fromFrequencyMap(freqMap).canonicalCode();
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Sets whether characters are converted to upper case before they are encoded, as
+     * HuffmanCoding.encodeText does, so a table of capital letters covers lower case text.
+     * @param uppercase True to convert to upper case.
+     */
+    public void setUppercase(boolean uppercase) {
+        this.uppercase = uppercase;
+    }
+
+    /**
+     * Counts how often every character occurs in a stream, reading it one block at a time.
+     * Counts are halved (rounding up, so no character drops out) until their total fits in an int.
+     * @param in The text to count.
+     * @return A map of characters and their frequencies.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static Map<String, Integer> countFrequencies(Reader in) throws IOException {
+        return countFrequencies(in, false);
+    }
+
+    /**
+     * Counts how often every character occurs in a stream, optionally after converting it to
+     * upper case. The counts then match what compress encodes with setUppercase(true), so
+     * every character it meets has a code.
+     * @param in The text to count.
+     * @param uppercase True to count the upper case form of every character.
+     * @return A map of characters and their frequencies.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static Map<String, Integer> countFrequencies(Reader in, boolean uppercase) throws IOException {
+        long[] counts = new long[Character.MAX_VALUE + 1];
+        char[] block = new char[DEFAULT_BLOCK_SIZE];
+        int read;
+        long total = 0;
+        while ((read = in.read(block)) > 0) {
+            for (int i = 0; i < read; i++) {
+                counts[uppercase ? Character.toUpperCase(block[i]) : block[i]]++;
+            }
+            total += read;
+        }
+        while (total > MAX_TOTAL_FREQUENCY) {
+            total = 0;
+            for (int c = 0; c < counts.length; c++) {
+                counts[c] = (counts[c] + 1) / 2;
+                total += counts[c];
+            }
+        }
+        Map<String, Integer> freqMap = new HashMap<>();
+        for (int c = 0; c < counts.length; c++) {
+            if (counts[c] > 0) {
+                freqMap.put(String.valueOf((char) c), (int) counts[c]);
+            }
+        }
+        return freqMap;
+    }
+
+    /**
+     * Compresses a text stream.
+     * @param in The text to compress; read to its end but not closed.
+     * @param out Where the compressed stream is written; flushed but not closed.
+     * @return What was read, encoded and skipped.
+     * @throws IOException If an I/O error occurs.
+     */
+    public Result compress(Reader in, OutputStream out) throws IOException {
+        writeHeader(new DataOutputStream(out));
+        BitWriter bits = new BitWriter(out);
+        Result result = new Result();
+        char[] block = new char[blockSize];
+        int filled = 0;
+        int read;
+        while ((read = in.read(block, filled, blockSize - filled)) > 0) {
+            result.charactersRead += read;
+            // Drop characters without a code, compacting the block in place
+            int end = filled + read;
+            for (int i = filled; i < end; i++) {
+                char c = uppercase ? Character.toUpperCase(block[i]) : block[i];
+                if (code.canEncode(c)) {
+                    block[filled++] = c;
+                } else {
+                    result.charactersSkipped++;
+                }
+            }
+            if (filled == blockSize) {
+                writeBlock(bits, block, filled);
+                result.charactersEncoded += filled;
+                filled = 0;
+            }
+        }
+        if (filled > 0) {
+            writeBlock(bits, block, filled);
+            result.charactersEncoded += filled;
+        }
+        bits.write(0, 32);
+        bits.flush();
+        return result;
+    }
+
+    private void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(blockSize);
+        char[] symbols = code.symbols();
+        out.writeInt(symbols.length);
+        for (char c : symbols) {
+            out.writeChar(c);
+            out.writeByte(code.length(c));
+        }
+        out.flush();
+    }
+
+    private void writeBlock(BitWriter bits, char[] block, int length) throws IOException {
+        bits.write(length, 32);
+        for (int i = 0; i < length; i++) {
+            char c = block[i];
+            bits.write(code.code(c), code.length(c));
+        }
+        // Pad to a byte boundary so every block starts on one
+        bits.write(0, (int) (-bits.bitsWritten() & 7));
+    }
+
+    /**
+     * Decompresses a stream written by compress.
+     * @param in The compressed stream; read to its end marker but not closed.
+     * @param out Where the text is written; flushed but not closed.
+     * @return The number of characters written.
+     * @throws IOException If the stream is not valid compressed data or ends early.
+     */
+    public static long decompress(InputStream in, Writer out) throws IOException {
+        DataInputStream header = new DataInputStream(in);
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Not a Huffman compressed stream");
+        }
+        int version = header.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported Huffman stream version " + version);
+        }
+        int blockSize = header.readInt();
+        if (blockSize < 1) {
+            throw new IOException("Invalid block size " + blockSize);
+        }
+        int count = header.readInt();
+        if (count < 0 || count > Character.MAX_VALUE + 1) {
+            throw new IOException("Invalid code table size " + count);
+        }
+        char[] symbols = new char[count];
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            symbols[i] = header.readChar();
+            lengths[i] = header.readUnsignedByte();
+        }
+        CanonicalHuffmanCode code;
+        try {
+            code = new CanonicalHuffmanCode(symbols, lengths);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid Huffman code table: " + e.getMessage(), e);
+        }
+
+        BitReader bits = new BitReader(in);
+        char[] block = new char[Math.min(blockSize, DEFAULT_BLOCK_SIZE)];
+        long written = 0;
+        while (true) {
+            int length = bits.readBits(32);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || length > blockSize) {
+                throw new IOException("Invalid block length " + length);
+            }
+            if (block.length < length) {
+                block = new char[length];
+            }
+            for (int i = 0; i < length; i++) {
+                block[i] = code.decode(bits);
+            }
+            out.write(block, 0, length);
+            written += length;
+            bits.alignToByte();
+        }
+        out.flush();
+        return written;
+    }
+
+    /**
+     * Compresses or decompresses a file.
+     * Text is read and written as UTF-8; input that is not valid UTF-8 is rejected.
+     * @param args compress|decompress, the input and output file names, then the options
+     *             --freq file (compress with this frequency table instead of counting the input),
+     *             --block n (characters per block), -u (convert to upper case before encoding)
+     *             and -q (print no summary).
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !(args[0].equals("compress") || args[0].equals("decompress"))) {
+            System.out.println("Usage: java HuffmanStreamCompressor compress|decompress <inputFile> <outputFile>"
+                    + " [--freq FreqTable.txt] [--block n] [-u] [-q]");
+            return;
+        }
+        String inputFile = args[1];
+        String outputFile = args[2];
+        String freqFile = null;
+        int blockSize = DEFAULT_BLOCK_SIZE;
+        boolean quiet = false;
+        boolean uppercase = false;
+        for (int i = 3; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("-q") || option.equals("--quiet")) {
+                quiet = true;
+                continue;
+            }
+            if (option.equals("-u") || option.equals("--uppercase")) {
+                uppercase = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--freq":
+                    freqFile = value;
+                    break;
+                case "--block":
+                    blockSize = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+
+        long start = System.nanoTime();
+        if (args[0].equals("compress")) {
+            Map<String, Integer> freqMap;
+            if (freqFile != null) {
+                freqMap = HuffmanCoding.readFrequencyTable(freqFile);
+            } else {
+                try (Reader in = openText(inputFile)) {
+                    freqMap = countFrequencies(in, uppercase);
+                }
+            }
+            HuffmanStreamCompressor compressor = new HuffmanStreamCompressor(freqMap, blockSize);
+            compressor.setUppercase(uppercase);
+            Result result;
+            try (Reader in = openText(inputFile);
+                 OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile), 1 << 16)) {
+                result = compressor.compress(in, out);
+            }
+            if (!quiet) {
+                System.out.printf("Compressed %d characters (%d skipped) into %d bytes in %.1f ms%n",
+                        result.charactersEncoded, result.charactersSkipped, new File(outputFile).length(),
+                        (System.nanoTime() - start) / 1e6);
+            }
+        } else {
+            long written;
+            try (InputStream in = new BufferedInputStream(new FileInputStream(inputFile), 1 << 16);
+                 Writer out = createText(outputFile)) {
+                written = decompress(in, out);
+            }
+            if (!quiet) {
+                System.out.printf("Decompressed %d characters in %.1f ms%n", written, (System.nanoTime() - start) / 1e6);
+            }
+        }
+    }
+
+    /**
+     * Opens a UTF-8 text file for reading. Malformed input is reported, not replaced.
+     * @param fileName The file to read.
+     * @return A reader that throws a CharacterCodingException at the first invalid byte sequence.
+     * @throws IOException If the file cannot be opened.
+     */
+    static Reader openText(String fileName) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        return new InputStreamReader(new BufferedInputStream(new FileInputStream(fileName), 1 << 16), decoder);
+    }
+
+    /**
+     * Creates a UTF-8 text file for writing. A lone surrogate is reported, not written as '?'.
+     * @param fileName The file to write.
+     * @return A buffered writer that throws a CharacterCodingException for text it cannot encode.
+     * @throws IOException If the file cannot be created.
+     */
+    static Writer createText(String fileName) throws IOException {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), encoder), 1 << 16);
+    }
+}
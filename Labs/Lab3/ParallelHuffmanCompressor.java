@@ -0,0 +1,380 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Compresses text in independent blocks on a ForkJoinPool. Every block gets its own
+ * frequency histogram and canonical Huffman code, so the code follows the statistics of
+ * the text as they drift through a large file, and every block can be decoded on its own:
+ * HuffmanBlockFile decompresses the blocks in parallel or reads any one of them by index.
+ *
+ * A block's histogram is counted in stripes on the pool; each stripe counts into a dense
+ * table owned by its worker thread and the stripe results are merged pairwise as the tasks
+ * join. Only a bounded window of blocks is read ahead, so memory does not grow with the input.
+ * A block never ends on the high half of a surrogate pair; that character starts the next
+ * block instead, so every block decodes to well-formed text on its own.
+ *
+ * Container format:
+ * <pre>
+ *   int   magic "HUFP"
+ *   byte  version (1)
+ *   int   block size in characters
+ *   frames, one per block:
+ *     int   number of characters
+ *     int   number of code table entries
+ *     entries: char symbol, byte code length (canonical order)
+ *     packed code bits, padded with zero bits to a whole byte
+ *   index, one entry per block: long frame offset, int frame length, int number of characters
+ *   long  index offset
+ *   int   number of blocks
+ *   int   magic "HUFI"
+ * </pre>
+ */
+public class ParallelHuffmanCompressor {
+
+    /** "HUFP" in ASCII. */
+    static final int MAGIC = 0x48554650;
+
+    /** "HUFI" in ASCII, the last four bytes of a container. */
+    static final int INDEX_MAGIC = 0x48554649;
+
+    /** Format version written in the header. */
+    static final int VERSION = 1;
+
+    /** Bytes from the index offset field to the end of the container. */
+    static final int TRAILER_SIZE = 8 + 4 + 4;
+
+    /** Bytes of one index entry. */
+    static final int INDEX_ENTRY_SIZE = 8 + 4 + 4;
+
+    /** Characters per block unless another size is given. */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 18;
+
+    /** Histogram stripes are split no smaller than this many characters. */
+    static final int STRIPE_SIZE = 1 << 15;
+
+    /** Dense counting table of the current worker thread, all zero between uses. */
+    private static final ThreadLocal<int[]> COUNTS = ThreadLocal.withInitial(() -> new int[Character.MAX_VALUE + 1]);
+
+    /**
+     * The distinct characters of a text range and how often each occurs.
+     */
+    static final class Histogram {
+        final char[] symbols;
+        final int[] counts;
+
+        Histogram(char[] symbols, int[] counts) {
+            this.symbols = symbols;
+            this.counts = counts;
+        }
+    }
+
+    /**
+     * Counts block[from..to) by splitting it into stripes and merging their histograms.
+     */
+    static final class CountTask extends RecursiveTask<Histogram> {
+        private static final long serialVersionUID = 1L;
+
+        private final char[] block;
+        private final int from;
+        private final int to;
+
+        CountTask(char[] block, int from, int to) {
+            this.block = block;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Histogram compute() {
+            if (to - from <= STRIPE_SIZE) {
+                int[] counts = COUNTS.get();
+                int max = 0;
+                for (int i = from; i < to; i++) {
+                    char c = block[i];
+                    counts[c]++;
+                    max = Math.max(max, c);
+                }
+                return extract(counts, max + 1);
+            }
+            int mid = (from + to) >>> 1;
+            CountTask left = new CountTask(block, from, mid);
+            left.fork();
+            Histogram right = new CountTask(block, mid, to).compute();
+            return merge(left.join(), right);
+        }
+
+        private static Histogram merge(Histogram a, Histogram b) {
+            int[] counts = COUNTS.get();
+            for (int i = 0; i < a.symbols.length; i++) {
+                counts[a.symbols[i]] += a.counts[i];
+            }
+            for (int i = 0; i < b.symbols.length; i++) {
+                counts[b.symbols[i]] += b.counts[i];
+            }
+            return extract(counts, Math.max(limit(a), limit(b)));
+        }
+
+        // Symbols are in ascending order, so the last one is the largest
+        private static int limit(Histogram h) {
+            return h.symbols.length == 0 ? 0 : h.symbols[h.symbols.length - 1] + 1;
+        }
+
+        // Collects the non-zero entries below limit and clears them, leaving the table all zero again
+        private static Histogram extract(int[] counts, int limit) {
+            int distinct = 0;
+            for (int c = 0; c < limit; c++) {
+                if (counts[c] != 0) {
+                    distinct++;
+                }
+            }
+            char[] symbols = new char[distinct];
+            int[] values = new int[distinct];
+            int n = 0;
+            for (int c = 0; n < distinct; c++) {
+                if (counts[c] != 0) {
+                    symbols[n] = (char) c;
+                    values[n++] = counts[c];
+                    counts[c] = 0;
+                }
+            }
+            return new Histogram(symbols, values);
+        }
+    }
+
+    /**
+     * Counts, builds the code for and encodes one block into a complete frame.
+     */
+    static final class EncodeTask extends RecursiveTask<byte[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final char[] block;
+        private final int length;
+
+        EncodeTask(char[] block, int length) {
+            this.block = block;
+            this.length = length;
+        }
+
+        @Override
+        protected byte[] compute() {
+            Histogram histogram = new CountTask(block, 0, length).compute();
+            CanonicalHuffmanCode code = PrimitiveHuffmanTree.build(histogram.symbols, histogram.counts).canonicalCode();
+            char[] symbols = code.symbols();
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(8 + 3 * symbols.length + length / 2);
+            try {
+                DataOutputStream header = new DataOutputStream(frame);
+                header.writeInt(length);
+                header.writeInt(symbols.length);
+                for (char c : symbols) {
+                    header.writeChar(c);
+                    header.writeByte(code.length(c));
+                }
+                BitWriter bits = new BitWriter(frame);
+                for (int i = 0; i < length; i++) {
+                    char c = block[i];
+                    bits.write(code.code(c), code.length(c));
+                }
+                bits.flush();
+            } catch (IOException e) {
+                throw new AssertionError("ByteArrayOutputStream does not throw", e);
+            }
+            return frame.toByteArray();
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final int blockSize;
+
+    /**
+     * Constructor to compress on the given pool.
+     * @param pool The pool that counts and encodes the blocks.
+     * @param blockSize Characters per block, at least 2 so a surrogate pair fits in one.
+     */
+    public ParallelHuffmanCompressor(ForkJoinPool pool, int blockSize) {
+        if (blockSize < 2) {
+            throw new IllegalArgumentException("Block size must be at least 2: " + blockSize);
+        }
+        this.pool = pool;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Compresses a text stream into a container. Up to twice the pool's parallelism blocks
+     * are encoded at a time; frames are written in input order as they complete.
+     * @param in The text to compress; read to its end but not closed.
+     * @param out Where the container is written; flushed but not closed.
+     * @return The number of characters compressed.
+     * @throws IOException If an I/O error occurs.
+     */
+    public long compress(Reader in, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt(blockSize);
+
+        long[] offsets = new long[16];
+        int[] frameLengths = new int[16];
+        int[] charCounts = new int[16];
+        int blocks = 0;
+        long offset = 4 + 1 + 4;
+        long total = 0;
+        int window = 2 * pool.getParallelism();
+        Deque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>();
+        Deque<Integer> pendingLengths = new ArrayDeque<>();
+        boolean more = true;
+        // A high surrogate held back from the end of the previous block, or -1
+        int carry = -1;
+        while (more || !pending.isEmpty()) {
+            while (more && pending.size() < window) {
+                char[] block = new char[blockSize];
+                int start = 0;
+                if (carry >= 0) {
+                    block[start++] = (char) carry;
+                    carry = -1;
+                }
+                int length = readBlock(in, block, start);
+                if (length == 0) {
+                    more = false;
+                    break;
+                }
+                more = length == blockSize;
+                if (more && Character.isHighSurrogate(block[length - 1])) {
+                    carry = block[--length];
+                }
+                pending.addLast(pool.submit(new EncodeTask(block, length)));
+                pendingLengths.addLast(length);
+            }
+            if (pending.isEmpty()) {
+                break;
+            }
+            byte[] frame = pending.removeFirst().join();
+            int length = pendingLengths.removeFirst();
+            if (blocks == offsets.length) {
+                offsets = Arrays.copyOf(offsets, 2 * blocks);
+                frameLengths = Arrays.copyOf(frameLengths, 2 * blocks);
+                charCounts = Arrays.copyOf(charCounts, 2 * blocks);
+            }
+            offsets[blocks] = offset;
+            frameLengths[blocks] = frame.length;
+            charCounts[blocks++] = length;
+            data.write(frame);
+            offset += frame.length;
+            total += length;
+        }
+
+        for (int i = 0; i < blocks; i++) {
+            data.writeLong(offsets[i]);
+            data.writeInt(frameLengths[i]);
+            data.writeInt(charCounts[i]);
+        }
+        data.writeLong(offset);
+        data.writeInt(blocks);
+        data.writeInt(INDEX_MAGIC);
+        data.flush();
+        return total;
+    }
+
+    /**
+     * Fills block from the reader, stopping early only at the end of the stream.
+     * @param in The text.
+     * @param block The buffer to fill.
+     * @param filled The number of characters already in block.
+     * @return The number of characters in block, 0 if it was empty and the stream has ended.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static int readBlock(Reader in, char[] block, int filled) throws IOException {
+        int read;
+        while (filled < block.length && (read = in.read(block, filled, block.length - filled)) > 0) {
+            filled += read;
+        }
+        return filled;
+    }
+
+    /**
+     * Compresses, decompresses or extracts one block of a file. Text is read and written as
+     * UTF-8; input that is not valid UTF-8 is rejected.
+     * @param args compress|decompress input output, or block input index output; then the options
+     *             --block n (characters per block), --threads n (default: number of cores)
+     *             and -q (print no summary).
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !(args[0].equals("compress") || args[0].equals("decompress")
+                || args[0].equals("block") && args.length >= 4)) {
+            System.out.println("Usage: java ParallelHuffmanCompressor compress|decompress <inputFile> <outputFile>"
+                    + " [--block n] [--threads n] [-q]");
+            System.out.println("       java ParallelHuffmanCompressor block <inputFile> <blockIndex> <outputFile>");
+            return;
+        }
+        int blockSize = DEFAULT_BLOCK_SIZE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean quiet = false;
+        int first = args[0].equals("block") ? 4 : 3;
+        for (int i = first; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("-q") || option.equals("--quiet")) {
+                quiet = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--block":
+                    blockSize = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    threads = Math.max(1, Integer.parseInt(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        try {
+            if (args[0].equals("compress")) {
+                long total;
+                try (Reader in = HuffmanStreamCompressor.openText(args[1]);
+                     OutputStream out = new BufferedOutputStream(new FileOutputStream(args[2]), 1 << 16)) {
+                    total = new ParallelHuffmanCompressor(pool, blockSize).compress(in, out);
+                }
+                if (!quiet) {
+                    System.out.printf("Compressed %d characters into %d bytes on %d threads in %.1f ms%n",
+                            total, new File(args[2]).length(), threads, (System.nanoTime() - start) / 1e6);
+                }
+            } else {
+                String outputFile = args[0].equals("block") ? args[3] : args[2];
+                try (HuffmanBlockFile in = new HuffmanBlockFile(args[1]);
+                     Writer out = HuffmanStreamCompressor.createText(outputFile)) {
+                    if (args[0].equals("block")) {
+                        out.write(in.readBlock(Integer.parseInt(args[2])));
+                    } else {
+                        long total = in.decompress(out, pool);
+                        if (!quiet) {
+                            System.out.printf("Decompressed %d characters from %d blocks on %d threads in %.1f ms%n",
+                                    total, in.blockCount(), threads, (System.nanoTime() - start) / 1e6);
+                        }
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
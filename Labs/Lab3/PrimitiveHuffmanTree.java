@@ -0,0 +1,302 @@
+import java.util.Map;
+
+/**
+ * Huffman tree kept in parallel int arrays instead of HuffmanNode objects, for alphabets of
+ * bytes or chars. Leaves are nodes 0 to n - 1 in the order of the symbols given; the internal
+ * nodes follow in the order they are created, so the root is the last node and every child
+ * has a smaller index than its parent.
+ *
+ * The tree is the one HuffmanCoding.buildHuffmanTree builds for the same frequencies. Merging
+ * follows HuffmanComparator: lower frequency first, then single characters before groups, then
+ * alphabetical order. A group's string is its leaves' characters concatenated and two groups
+ * never share a character, so their alphabetical order is the order of their first characters,
+ * the symbols of their leftmost leaves. The whole comparison therefore fits in one packed long
+ * key of a primitive min-heap, without building any strings.
+ */
+public class PrimitiveHuffmanTree {
+
+    /** Bits of the heap key below the frequency: the group flag and the first symbol. */
+    private static final int KEY_SHIFT = 17;
+
+    private final char[] symbols;
+    private final int[] freq;
+    private final int[] left;
+    private final int[] right;
+
+    /**
+     * Builds the tree for the symbols and their frequencies.
+     * @param symbols The symbols, each at most once (CanonicalHuffmanCode rejects repeats).
+     * @param frequencies Their frequencies, which must add up to at most Integer.MAX_VALUE,
+     *                    the largest frequency a node holds.
+     * @return The tree.
+     * @throws IllegalArgumentException If a frequency is negative or the total is too large.
+     */
+    public static PrimitiveHuffmanTree build(char[] symbols, int[] frequencies) {
+        return new PrimitiveHuffmanTree(symbols.clone(), frequencies);
+    }
+
+    /**
+     * Builds the tree for counts indexed by symbol, such as the 256 counts of a byte histogram.
+     * Symbols with a count of 0 are left out.
+     * @param counts The count of every symbol; at most Character.MAX_VALUE + 1 of them.
+     * @return The tree.
+     * @throws IllegalArgumentException If a count is negative or the total is too large.
+     */
+    public static PrimitiveHuffmanTree fromCounts(int[] counts) {
+        if (counts.length > Character.MAX_VALUE + 1) {
+            throw new IllegalArgumentException("More counts than symbols: " + counts.length);
+        }
+        int n = 0;
+        for (int count : counts) {
+            if (count != 0) {
+                n++;
+            }
+        }
+        char[] symbols = new char[n];
+        int[] frequencies = new int[n];
+        n = 0;
+        for (int c = 0; c < counts.length; c++) {
+            if (counts[c] != 0) {
+                symbols[n] = (char) c;
+                frequencies[n++] = counts[c];
+            }
+        }
+        return new PrimitiveHuffmanTree(symbols, frequencies);
+    }
+
+    /**
+     * Builds the tree for a frequency table as read from FreqTable.txt.
+     * @param freqMap Single-character strings and their frequencies.
+     * @return The tree.
+     * @throws IllegalArgumentException If a key is not exactly one character, a frequency is
+     *                                  negative or the total is too large.
+     */
+    public static PrimitiveHuffmanTree fromFrequencyMap(Map<String, Integer> freqMap) {
+        char[] symbols = new char[freqMap.size()];
+        int[] frequencies = new int[freqMap.size()];
+        int n = 0;
+        for (Map.Entry<String, Integer> entry : freqMap.entrySet()) {
+            String key = entry.getKey();
+            if (key.length() != 1) {
+                throw new IllegalArgumentException("Frequency table entry is not a single character: \"" + key + "\"");
+            }
+            symbols[n] = key.charAt(0);
+            frequencies[n++] = entry.getValue();
+        }
+        return new PrimitiveHuffmanTree(symbols, frequencies);
+    }
+
+    private PrimitiveHuffmanTree(char[] symbols, int[] frequencies) {
+        int n = symbols.length;
+        if (frequencies.length != n) {
+            throw new IllegalArgumentException("Expected " + n + " frequencies, got " + frequencies.length);
+        }
+        this.symbols = symbols;
+        int nodes = Math.max(0, 2 * n - 1);
+        freq = new int[nodes];
+        left = new int[nodes];
+        right = new int[nodes];
+        // The first character of every node's string (its leftmost leaf), for the alphabetical tie-break
+        char[] first = new char[nodes];
+
+        // Heap of keys (frequency << KEY_SHIFT | group << 16 | first symbol) and their nodes
+        long[] keys = new long[n + 1];
+        int[] heapNodes = new int[n + 1];
+        int size = 0;
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            if (frequencies[i] < 0) {
+                throw new IllegalArgumentException("Negative frequency " + frequencies[i] + " for " + symbols[i]);
+            }
+            total += frequencies[i];
+            freq[i] = frequencies[i];
+            left[i] = -1;
+            right[i] = -1;
+            first[i] = symbols[i];
+            size = push(keys, heapNodes, size, (long) frequencies[i] << KEY_SHIFT | symbols[i], i);
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Total frequency " + total + " does not fit in an int");
+        }
+
+        for (int node = n; node < nodes; node++) {
+            int a = heapNodes[0];
+            size = pop(keys, heapNodes, size);
+            int b = heapNodes[0];
+            size = pop(keys, heapNodes, size);
+            freq[node] = freq[a] + freq[b];
+            left[node] = a;
+            right[node] = b;
+            first[node] = first[a];
+            size = push(keys, heapNodes, size, (long) freq[node] << KEY_SHIFT | 1 << 16 | first[node], node);
+        }
+    }
+
+    /**
+     * Adds a key to the heap.
+     * @param keys The heap keys.
+     * @param nodes The node of each key.
+     * @param size The heap size.
+     * @param key The key to add.
+     * @param node Its node.
+     * @return The new heap size.
+     */
+    private static int push(long[] keys, int[] nodes, int size, long key, int node) {
+        int i = size;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            keys[i] = keys[parent];
+            nodes[i] = nodes[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        nodes[i] = node;
+        return size + 1;
+    }
+
+    /**
+     * Removes the smallest key; its node is nodes[0] before the call.
+     * @param keys The heap keys.
+     * @param nodes The node of each key.
+     * @param size The heap size.
+     * @return The new heap size.
+     */
+    private static int pop(long[] keys, int[] nodes, int size) {
+        size--;
+        long key = keys[size];
+        int node = nodes[size];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            keys[i] = keys[child];
+            nodes[i] = nodes[child];
+            i = child;
+        }
+        keys[i] = key;
+        nodes[i] = node;
+        return size;
+    }
+
+    /**
+     * Returns the number of leaves, one per symbol.
+     * @return The number of symbols.
+     */
+    public int symbolCount() {
+        return symbols.length;
+    }
+
+    /**
+     * Returns the root node.
+     * @return The index of the root, or -1 if the tree is empty.
+     */
+    public int root() {
+        return freq.length - 1;
+    }
+
+    /**
+     * Checks if a node is a leaf.
+     * @param node The node index.
+     * @return True if node holds a single symbol.
+     */
+    public boolean isLeaf(int node) {
+        return node < symbols.length;
+    }
+
+    /**
+     * Returns the symbol of a leaf.
+     * @param node A leaf index.
+     * @return Its symbol.
+     */
+    public char symbol(int node) {
+        return symbols[node];
+    }
+
+    /**
+     * Returns the frequency of a node.
+     * @param node The node index.
+     * @return The sum of the frequencies of the leaves below it.
+     */
+    public int frequency(int node) {
+        return freq[node];
+    }
+
+    /**
+     * Returns the left child of a node.
+     * @param node The node index.
+     * @return The left child, or -1 for a leaf.
+     */
+    public int left(int node) {
+        return left[node];
+    }
+
+    /**
+     * Returns the right child of a node.
+     * @param node The node index.
+     * @return The right child, or -1 for a leaf.
+     */
+    public int right(int node) {
+        return right[node];
+    }
+
+    /**
+     * Returns the depth of every leaf, which is its code length. A tree that is a single
+     * leaf gives that symbol a one-bit code, as CanonicalHuffmanCode.fromTree does.
+     * @return The code length of each symbol, in the order the symbols were given.
+     */
+    public int[] codeLengths() {
+        int n = symbols.length;
+        int[] depth = new int[freq.length];
+        if (n == 1) {
+            depth[0] = 1;
+        }
+        // Parents come after their children, so one pass from the root down reaches every node
+        for (int node = freq.length - 1; node >= n; node--) {
+            depth[left[node]] = depth[node] + 1;
+            depth[right[node]] = depth[node] + 1;
+        }
+        int[] lengths = new int[n];
+        System.arraycopy(depth, 0, lengths, 0, n);
+        return lengths;
+    }
+
+    /**
+     * Builds the canonical code with the code lengths of this tree; it is the same code
+     * CanonicalHuffmanCode.fromTree gives for the tree of HuffmanCoding.buildHuffmanTree.
+     * @return The canonical code.
+     */
+    public CanonicalHuffmanCode canonicalCode() {
+        return new CanonicalHuffmanCode(symbols, codeLengths());
+    }
+
+    /**
+     * Converts the tree to HuffmanNode objects, for printing with HuffmanCoding.
+     * @return The root node, or null if the tree is empty.
+     */
+    public HuffmanNode toHuffmanNode() {
+        return freq.length == 0 ? null : toHuffmanNode(root());
+    }
+
+    private HuffmanNode toHuffmanNode(int node) {
+        if (isLeaf(node)) {
+            return new HuffmanNode(freq[node], String.valueOf(symbols[node]));
+        }
+        HuffmanNode l = toHuffmanNode(left[node]);
+        HuffmanNode r = toHuffmanNode(right[node]);
+        HuffmanNode combined = new HuffmanNode(freq[node], l.characters + r.characters);
+        combined.left = l;
+        combined.right = r;
+        return combined;
+    }
+}